@@ -18,11 +18,11 @@ import androidx.core.graphics.PathParser;
 
 import com.ngb.wyn.common.utils.LogUtil;
 import com.ngb.wyn.common.utils.ToastUtil;
+import com.ngb.wyn.common.utils.json.JsonPullReader;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -114,36 +114,37 @@ public class Bihua extends View {
         mMediansPaths.clear();
         mMediansPathMeasures.clear();
 
+        JsonPullReader reader = JsonPullReader.of(jsonString);
         try {
-            JSONObject jsonObject = new JSONObject(jsonString);
-            JSONArray strokePathArrays = jsonObject.optJSONArray("strokes");
-            if (strokePathArrays == null) {
-                return false;
-            }
-            for (int i = 0; i < strokePathArrays.length(); i++) {
-                mStrokePaths.add(PathParser.createPathFromPathData(strokePathArrays.getString(i)));
-            }
-            JSONArray medianArrays = jsonObject.optJSONArray("medians");
-            if (medianArrays == null) {
-                return false;
-            }
-            //mediaArrays长度，其实就是笔划的个数
-            for (int i = 0; i < medianArrays.length(); i++) {
-                JSONArray pathsArrays = medianArrays.optJSONArray(i);
-                Path path = new Path();
-                for (int j = 0; j < pathsArrays.length(); j++) {
-                    JSONArray point = pathsArrays.optJSONArray(j);
-                    float x = point.getInt(0);
-                    float y = point.getInt(1);
-                    //起笔，要移动画笔
-                    if (j == 0) {
-                        path.moveTo(x, y);
-                    } else {
-                        path.lineTo(x, y);
+            boolean hasStrokes = false;
+            boolean hasMedians = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("strokes".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_ARRAY) {
+                    hasStrokes = true;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        mStrokePaths.add(PathParser.createPathFromPathData(reader.nextString()));
+                    }
+                    reader.endArray();
+                } else if ("medians".equals(name) && reader.peek() == JsonPullReader.Token.BEGIN_ARRAY) {
+                    hasMedians = true;
+                    //medians数组长度，其实就是笔划的个数
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Path path = parseMedianPath(reader);
+                        mMediansPathMeasures.add(new PathMeasure(path, false));
+                        mMediansPaths.add(path);
                     }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
                 }
-                mMediansPathMeasures.add(new PathMeasure(path, false));
-                mMediansPaths.add(path);
+            }
+            reader.endObject();
+            if (!hasStrokes || !hasMedians) {
+                return false;
             }
             boolean isParseSuccess = hasParse();
             if (isParseSuccess) {
@@ -151,12 +152,36 @@ public class Bihua extends View {
             }
             LogUtil.d("parse, isParseSuccess:" + isParseSuccess);
             return isParseSuccess;
-        } catch (JSONException e) {
+        } catch (JSONException | IOException e) {
             LogUtil.e("parse, " + e.getMessage());
             return false;
         }
     }
 
+    private Path parseMedianPath(JsonPullReader reader) throws JSONException, IOException {
+        Path path = new Path();
+        boolean isFirst = true;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginArray();
+            float x = reader.nextFloat();
+            float y = reader.nextFloat();
+            while (reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+            //起笔，要移动画笔
+            if (isFirst) {
+                path.moveTo(x, y);
+                isFirst = false;
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        reader.endArray();
+        return path;
+    }
+
     public void play() {
         if (mStrokePaths.isEmpty()) {
             ToastUtil.toastLong("数据为空，播放失败！");
@@ -5,11 +5,11 @@ import android.media.MediaMetadataRetriever;
 import android.os.Environment;
 import android.text.TextUtils;
 
-import com.bumptech.glide.load.model.GlideUrl;
-import com.bumptech.glide.signature.EmptySignature;
-import com.bumptech.glide.util.Util;
-import com.ngb.wyn.common.BaseApplication;
-import com.ngb.wyn.common.CommonConstants;
+import com.ngb.wyn.common.utils.file.AtomicFileWriter;
+import com.ngb.wyn.common.utils.file.FileDigest;
+import com.ngb.wyn.common.utils.file.GlideKeyResolver;
+import com.ngb.wyn.common.utils.file.ParallelZipper;
+import com.ngb.wyn.common.utils.file.UnzipEngine;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
@@ -17,11 +17,14 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Stack;
@@ -34,6 +37,7 @@ public class FileUtil {
     private static final String TAG = "FileUtil";
     private static final int BUFFER_SIZE = 4096;
     private static final int ZIP_BUFFER_SIZE = BUFFER_SIZE * 100;
+    private static final int MMAP_THRESHOLD = 64 * 1024;
 
     public static String getFileMimeType(String filePath) {
         MediaMetadataRetriever mediaMetadataRetriever = new MediaMetadataRetriever();
@@ -164,6 +168,18 @@ public class FileUtil {
         return false;
     }
 
+    /**
+     * 原子写入：先写临时文件并fsync，再rename覆盖目标文件，写入过程中崩溃不会留下不完整的文件
+     * 频繁写入多个文件时可使用{@link AtomicFileWriter#writeGrouped(File, byte[])}合并目录fsync
+     *
+     * @param filePath 文件路径，已存在时被原子替换
+     * @param bytes    文件内容
+     * @return 是否写入并持久化成功
+     */
+    public static boolean saveByteFileAtomic(String filePath, byte[] bytes) {
+        return AtomicFileWriter.write(new File(filePath), bytes);
+    }
+
     public static boolean saveFile(File file) {
         if (file == null || !file.isFile()) {
             return false;
@@ -181,6 +197,146 @@ public class FileUtil {
         return false;
     }
 
+    /**
+     * 按文件长度一次性分配数组并读满，只有一次拷贝，适用于长度已知的普通文件
+     * 读取过程中文件长度发生变化时返回null，长度未知的文件（如/proc下的文件）请使用{@link #fileToByte(String)}
+     *
+     * @param filePath 文件路径
+     * @return 文件内容，失败返回null
+     */
+    public static byte[] fileToByteExact(String filePath) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(filePath, "r");
+            long length = randomAccessFile.length();
+            if (length > Integer.MAX_VALUE) {
+                LogUtil.e(TAG, "fileToByteExact, file too large: " + length);
+                return null;
+            }
+            byte[] bytes = new byte[(int) length];
+            randomAccessFile.readFully(bytes);
+            if (randomAccessFile.read() != -1) {
+                LogUtil.e(TAG, "fileToByteExact, file grows while reading: " + filePath);
+                return null;
+            }
+            return bytes;
+        } catch (Exception e) {
+            LogUtil.e(TAG, "fileToByteExact, error: " + e.getMessage());
+        } finally {
+            closeSilently(randomAccessFile);
+        }
+        return null;
+    }
+
+    /**
+     * 将文件只读映射到内存，返回的ByteBuffer直接由页缓存支撑，不在Java堆上拷贝数据
+     * 映射在ByteBuffer被回收前一直有效，文件关闭不影响映射；映射期间不要截断该文件
+     *
+     * @param filePath 文件路径
+     * @return 只读的MappedByteBuffer，失败返回null
+     */
+    public static MappedByteBuffer mapFile(String filePath) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(filePath, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (Exception e) {
+            LogUtil.e(TAG, "mapFile, error: " + e.getMessage());
+        } finally {
+            closeSilently(randomAccessFile);
+        }
+        return null;
+    }
+
+    /**
+     * 读取文件为ByteBuffer，小文件直接读入堆内数组（mmap建立映射的开销比读取更大），大文件使用mmap
+     *
+     * @param filePath 文件路径
+     * @return 只读的ByteBuffer，position为0，limit为文件长度，失败返回null
+     */
+    public static ByteBuffer readFileBuffer(String filePath) {
+        File file = new File(filePath);
+        if (file.length() >= MMAP_THRESHOLD) {
+            return mapFile(filePath);
+        }
+        byte[] bytes = fileToByteExact(filePath);
+        return bytes == null ? null : ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * 通过FileChannel直接写入，不经过额外的缓冲流
+     *
+     * @param filePath 文件路径
+     * @param buffer   写入position到limit之间的数据，写入后position等于limit
+     * @param isCover  文件已存在时是否覆盖，false则重命名后新建
+     * @return 是否写入成功
+     */
+    public static boolean saveByteBuffer(String filePath, ByteBuffer buffer, boolean isCover) {
+        FileOutputStream fileOutputStream = null;
+        try {
+            File file = createFile(filePath, isCover);
+            if (file == null) {
+                return false;
+            }
+            fileOutputStream = new FileOutputStream(file);
+            FileChannel channel = fileOutputStream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return true;
+        } catch (Exception e) {
+            LogUtil.e(TAG, "saveByteBuffer, error: " + e.getMessage());
+        } finally {
+            closeSilently(fileOutputStream);
+        }
+        return false;
+    }
+
+    /**
+     * 通过{@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}复制文件，
+     * 数据由内核直接拷贝（sendfile），不经过Java堆
+     *
+     * @param srcFile  源文件
+     * @param destFile 目标文件，已存在时会被覆盖；与源文件是同一个文件时不做任何修改
+     * @return 是否复制成功
+     */
+    public static boolean copyFile(File srcFile, File destFile) {
+        FileInputStream fileInputStream = null;
+        FileOutputStream fileOutputStream = null;
+        try {
+            //打开输出流会先清空目标文件，同一个文件时源文件也就被清空了
+            if (srcFile.getCanonicalPath().equals(destFile.getCanonicalPath())) {
+                LogUtil.w(TAG, "copyFile, src and dest are the same file: " + srcFile);
+                return srcFile.isFile();
+            }
+            File parentFile = destFile.getParentFile();
+            if (parentFile != null && !createFileDir(parentFile)) {
+                return false;
+            }
+            fileInputStream = new FileInputStream(srcFile);
+            fileOutputStream = new FileOutputStream(destFile);
+            FileChannel srcChannel = fileInputStream.getChannel();
+            FileChannel destChannel = fileOutputStream.getChannel();
+            long size = srcChannel.size();
+            long position = 0;
+            while (position < size) {
+                long count = srcChannel.transferTo(position, size - position, destChannel);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+            }
+            return position == size;
+        } catch (Exception e) {
+            LogUtil.e(TAG, "copyFile, error: " + e.getMessage());
+        } finally {
+            closeSilently(fileInputStream);
+            closeSilently(fileOutputStream);
+        }
+        return false;
+    }
+
     public static void closeSilently(Closeable closeable) {
         if (closeable == null) {
             return;
@@ -240,9 +396,7 @@ public class FileUtil {
      * @return 返回Glide缓存该url图片在缓存中的路径
      */
     public static String getGlideFilePath(String url) {
-        return BaseApplication.getInstance().getCacheDir() + File.separator
-                + CommonConstants.GLIDE_CACHE_DIR_PATH + File.separator
-                + getGlideSafeKey(url);
+        return GlideKeyResolver.getFilePath(url);
     }
 
     /**
@@ -251,17 +405,18 @@ public class FileUtil {
      * @return 返回图片在缓存中的key值
      */
     public static String getGlideSafeKey(String url) {
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-            EmptySignature signature = EmptySignature.obtain();
-            signature.updateDiskCacheKey(messageDigest);
-            new GlideUrl(url).updateDiskCacheKey(messageDigest);
-            String safeKey = Util.sha256BytesToHex(messageDigest.digest());
-            return safeKey + ".0";
-        } catch (NoSuchAlgorithmException e) {
-            LogUtil.e(TAG, "getGlideSafeKey, error:" + e.getMessage());
-        }
-        return null;
+        return GlideKeyResolver.getSafeKey(url);
+    }
+
+    /**
+     * 流式计算文件摘要，不会把整个文件读入内存，文件未变化时直接返回缓存结果
+     *
+     * @param filePath  文件路径
+     * @param algorithm 摘要算法
+     * @return 小写十六进制摘要，失败返回null
+     */
+    public static String getFileDigest(String filePath, FileDigest.Algorithm algorithm) {
+        return FileDigest.digest(new File(filePath), algorithm);
     }
 
     /**
@@ -324,6 +479,7 @@ public class FileUtil {
             }
         } catch (Exception e) {
             LogUtil.e(TAG, "unZipFile, error:" + e.getMessage());
+            return false;
         } finally {
             closeSilently(is);
             closeSilently(os);
@@ -331,6 +487,18 @@ public class FileUtil {
         return true;
     }
 
+    /**
+     * 多线程并行将zip文件解压到指定目录
+     *
+     * @param zip         zip文件
+     * @param desDir      解压目录
+     * @param parallelism 解压线程数，小于1时使用CPU核数
+     * @return 每个条目的解压结果，可通过{@link UnzipEngine.Result#getFailedEntryNames()}只重试失败的条目
+     */
+    public static UnzipEngine.Result unZipFileParallel(File zip, File desDir, int parallelism) {
+        return new UnzipEngine(zip, desDir).setParallelism(parallelism).unzip();
+    }
+
     /**
      * @param resFilePath      要压缩的文件（夹）列表
      * @param targetFilePath   生成的压缩文件
@@ -382,6 +550,54 @@ public class FileUtil {
         }
     }
 
+    /**
+     * 多线程并行压缩，压缩包内条目顺序与{@link #zipFiles(String, String, boolean)}一致
+     *
+     * @param resFilePath      要压缩的文件（夹）
+     * @param targetFilePath   生成的压缩文件
+     * @param keepDirStructure 是否保留文件结构
+     * @param parallelism      压缩线程数，小于1时使用CPU核数
+     * @return 是否压缩成功
+     */
+    public static boolean zipFilesParallel(String resFilePath, String targetFilePath, boolean keepDirStructure, int parallelism) {
+        FileOutputStream fileOutputStream = null;
+        try {
+            fileOutputStream = new FileOutputStream(targetFilePath);
+            return toZipParallel(resFilePath, new BufferedOutputStream(fileOutputStream, ZIP_BUFFER_SIZE),
+                    keepDirStructure, parallelism);
+        } catch (Exception e) {
+            LogUtil.e(TAG, "zipFilesParallel, error:" + e.getMessage());
+            return false;
+        } finally {
+            closeSilently(fileOutputStream);
+        }
+    }
+
+    /**
+     * 多线程并行压缩，文件分块后在线程池中deflate，再按固定顺序写入压缩包
+     * 超出zip格式限制（需要zip64）时自动退回{@link #toZip(String, OutputStream, boolean)}串行压缩，两种方式都不会关闭out
+     *
+     * @param srcDir           压缩文件夹的路径
+     * @param out              压缩文件输出流，压缩完成后会被flush，但不会关闭
+     * @param keepDirStructure 是否保留原来的目录结构
+     * @param parallelism      压缩线程数，小于1时使用CPU核数
+     * @return 返回压缩结果，成功or失败
+     */
+    public static boolean toZipParallel(String srcDir, OutputStream out, boolean keepDirStructure, int parallelism) {
+        try {
+            ParallelZipper zipper = new ParallelZipper(new File(srcDir), keepDirStructure);
+            if (!zipper.isSupported()) {
+                LogUtil.w(TAG, "toZipParallel, zip64 required, fallback to serial, entries:" + zipper.getEntryCount());
+                return toZip(srcDir, new NonClosingOutputStream(out), keepDirStructure);
+            }
+            zipper.writeTo(out, parallelism);
+            return true;
+        } catch (Exception e) {
+            LogUtil.e(TAG, "toZipParallel, error:" + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * 批量压缩成ZIP
      *
@@ -519,4 +735,23 @@ public class FileUtil {
         return result;
     }
 
+    /**
+     * close时只flush，不关闭被包装的流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
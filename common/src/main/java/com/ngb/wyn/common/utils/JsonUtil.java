@@ -2,21 +2,33 @@ package com.ngb.wyn.common.utils;
 
 import android.text.TextUtils;
 
+import com.ngb.wyn.common.utils.json.JsonFormatter;
+import com.ngb.wyn.common.utils.json.JsonMinifier;
+import com.ngb.wyn.common.utils.json.JsonPullReader;
+import com.ngb.wyn.common.utils.json.JsonType;
+import com.ngb.wyn.common.utils.json.JsonValidator;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONStringer;
 import org.json.JSONTokener;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 public class JsonUtil {
 
     private static final String TAG = "JsonUtil";
 
+    /**
+     * 按org.json的宽松规则解析判断，只需要严格校验、不需要构建对象时使用{@link JsonValidator#isValid(CharSequence)}
+     */
     public static boolean isJsonObject(String jsonString) {
         try {
             Object object = new JSONTokener(jsonString).nextValue();
@@ -27,6 +39,9 @@ public class JsonUtil {
         return false;
     }
 
+    /**
+     * 按org.json的宽松规则解析判断，只需要严格校验、不需要构建对象时使用{@link JsonValidator#isValid(CharSequence)}
+     */
     public static boolean isJsonArray(String jsonString) {
         try {
             Object object = new JSONTokener(jsonString).nextValue();
@@ -45,34 +60,78 @@ public class JsonUtil {
             Object object = new JSONTokener(valueString).nextValue();
             return !(object instanceof JSONArray) && !(object instanceof JSONObject);
         } catch (JSONException e) {
-            LogUtil.e(TAG, "isJsonArray, error:" + e.getMessage());
+            LogUtil.e(TAG, "isValidValue, error:" + e.getMessage());
         }
         return false;
     }
 
+    /**
+     * @param text 文本
+     * @return 第一个有效字符对应的JSON类型，O(1)判断，不校验后续内容
+     */
+    public static JsonType getJsonType(String text) {
+        return JsonValidator.sniff(text);
+    }
+
     public static String formatJson(String text, int indentSpaces) throws JSONException {
         if (TextUtils.isEmpty(text)) {
             return "";
         }
-        if (indentSpaces < 0) {
-            indentSpaces = 4;
+        StringBuilder builder = new StringBuilder(text.length() + (text.length() >> 1));
+        try {
+            JsonFormatter.format(new StringReader(text), builder, indentSpaces);
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
         }
-        char[] spaces = new char[indentSpaces];
-        Arrays.fill(spaces, ' ');
-        StringBuilder builder = new StringBuilder();
-        expandJson(builder, text, 0, spaces);
         return builder.toString();
     }
 
+    /**
+     * 单遍流式格式化，适合格式化大段JSON，结果直接写入out，不在内存中保留完整的字符串
+     *
+     * @param reader       JSON输入，不会被关闭
+     * @param out          格式化结果输出
+     * @param indentSpaces 每层缩进的空格数，小于0时为4
+     */
+    public static void formatJson(Reader reader, Appendable out, int indentSpaces) throws JSONException, IOException {
+        JsonFormatter.format(reader, out, indentSpaces);
+    }
+
+    /**
+     * 压缩JSON，对象、数组以外的值（包括数字、布尔值、null）都按字符串输出，可选对这些值做URL编码
+     * 输入只解析一次；需要保留值的类型或输入很大时，使用{@link #minifyJson(Reader, Appendable, boolean)}
+     */
     public static String compressJson(String jsonString, boolean isEncode) throws JSONException {
-        if (isJsonObject(jsonString)) {
-            JSONObject jsonObject = new JSONObject(jsonString);
-            return compressJsonObject(jsonObject, isEncode);
-        } else if (isJsonArray(jsonString)) {
-            JSONArray jsonArray = new JSONArray(jsonString);
-            return compressJsonArray(jsonArray, isEncode);
-        }
-        throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
+        return compressJson(jsonString, null, isEncode).toString();
+    }
+
+    /**
+     * 单遍流式压缩，去掉空白字符，可选对字符串类型的值做URL编码，输入输出都是流，不需要把整个JSON放入内存
+     * 与{@link #compressJson(String, boolean)}不同，数字、布尔值、null保持原样输出，不加引号也不编码
+     *
+     * @param reader   JSON输入，不会被关闭
+     * @param out      压缩结果输出
+     * @param isEncode 是否对字符串类型的值做URL编码
+     */
+    public static void minifyJson(Reader reader, Appendable out, boolean isEncode) throws JSONException, IOException {
+        JsonMinifier.minify(reader, out, isEncode);
+    }
+
+    /**
+     * 拉取式读取，按文档结构逐个读取，不构建JSONObject/JSONArray，数字直接读为基本类型
+     *
+     * @param reader JSON输入，读取结束后由调用方关闭JsonPullReader
+     */
+    public static JsonPullReader newReader(Reader reader) {
+        return new JsonPullReader(reader);
+    }
+
+    /**
+     * @param buffer UTF-8编码的JSON，可以是{@link FileUtil#mapFile(String)}映射的文件，从position读到limit，
+     *               读取的是buffer的slice，调用方buffer的position不变，可以重复读取
+     */
+    public static JsonPullReader newReader(ByteBuffer buffer) {
+        return JsonPullReader.of(buffer);
     }
 
     public static String compressJsonArray(JSONArray jsonArray, boolean isEncode) throws JSONException {
@@ -83,36 +142,13 @@ public class JsonUtil {
         return compressJsonObject(jsonObject, null, isEncode).toString();
     }
 
-    private static JSONStringer compressJson(String jsonString, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
-        if (isJsonObject(jsonString)) {
-            JSONObject jsonObject = new JSONObject(jsonString);
-            return compressJsonObject(jsonObject, jsonStringer, isEncode);
-        } else if (isJsonArray(jsonString)) {
-            JSONArray jsonArray = new JSONArray(jsonString);
-            return compressJsonArray(jsonArray, jsonStringer, isEncode);
-        }
-        throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
-    }
-
     private static JSONStringer compressJsonArray(JSONArray jsonArray, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
         if (jsonStringer == null) {
             jsonStringer = new JSONStringer();
         }
         jsonStringer.array();
         for (int i = 0; i < jsonArray.length(); i++) {
-            String value = jsonArray.get(i).toString();
-            if (isValidValue(value)) {
-                if (isEncode) {
-                    try {
-                        value = URLEncoder.encode(value, "UTF-8");
-                    } catch (UnsupportedEncodingException e) {
-                        LogUtil.e(TAG, "compressJsonArray, url encode error:" + e.getMessage());
-                    }
-                }
-                jsonStringer.value(value);
-            } else {
-                compressJson(jsonArray.get(i).toString(), jsonStringer, isEncode);
-            }
+            compressValue(jsonArray.get(i), jsonStringer, isEncode);
         }
         jsonStringer.endArray();
         return jsonStringer;
@@ -126,103 +162,58 @@ public class JsonUtil {
         jsonStringer.object();
         while (iterable.hasNext()) {
             String key = iterable.next();
-            String value = jsonObject.getString(key);
             jsonStringer.key(key);
-            if (isValidValue(value)) {
-                if (isEncode) {
-                    try {
-                        value = URLEncoder.encode(value, "UTF-8");
-                    } catch (UnsupportedEncodingException e) {
-                        LogUtil.e(TAG, "compressJsonArray, url encode error:" + e.getMessage());
-                    }
-                }
-                jsonStringer.value(value);
-            } else {
-                compressJson(value, jsonStringer, isEncode);
-            }
+            compressValue(jsonObject.get(key), jsonStringer, isEncode);
         }
         jsonStringer.endObject();
         return jsonStringer;
     }
 
-    private static StringBuilder expandJson(StringBuilder builder, String object, int level, char[] spaces) throws JSONException {
-        if (isJsonObject(object)) {
-            builder.append("{\n");
-            expandJsonObject(builder, object, level + 1, spaces);
-            appendSpaces(builder, level, spaces).append("}");
-        } else if (isJsonArray(object)) {
-            builder.append("[\n");
-            expandJsonArray(builder, object, level + 1, spaces);
-            appendSpaces(builder, level, spaces).append("]");
-        } else {
-            throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
-        }
-        return builder;
-    }
-
-    private static StringBuilder expandJsonObject(StringBuilder builder, String object, int level, char[] spaces) throws JSONException {
-        JSONObject jsonObject = new JSONObject(object);
-        Iterator<String> iterator = jsonObject.keys();
-        while (iterator.hasNext()) {
-            String key = iterator.next();
-            appendSpaces(builder, level, spaces).append("\"").append(key).append("\"").append(": ");
-            Object value = jsonObject.get(key);
-            if (isValidValue(value.toString())) {
-                appendValue(builder, value).append(",\n");
-            } else if (isJsonObject(value.toString())) {
-                builder.append("{\n");
-                expandJsonObject(builder, value.toString(), level + 1, spaces);
-                appendSpaces(builder, level, spaces).append("},\n");
-            } else if (isJsonArray(value.toString())) {
-                builder.append("[\n");
-                expandJsonArray(builder, value.toString(), level + 1, spaces);
-                appendSpaces(builder, level, spaces).append("],\n");
-            } else {
-                throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
+    /**
+     * 嵌套的对象、数组直接递归，不再转成字符串重新解析；
+     * 其他值转成字符串，内容本身是对象或数组的字符串会被展开，与原先的行为一致。
+     * 数字、布尔值、NULL不可能展开；字符串只在第一个有效字符是{或[时才解析，其余值不再逐个解析
+     */
+    private static void compressValue(Object object, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
+        if (object instanceof JSONObject) {
+            compressJsonObject((JSONObject) object, jsonStringer, isEncode);
+            return;
+        } else if (object instanceof JSONArray) {
+            compressJsonArray((JSONArray) object, jsonStringer, isEncode);
+            return;
+        }
+        String value = object.toString();
+        if (object instanceof String && isContainer(value) && !isValidValue(value)) {
+            compressJson(value, jsonStringer, isEncode);
+            return;
+        }
+        if (isEncode) {
+            try {
+                value = URLEncoder.encode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                LogUtil.e(TAG, "compressValue, url encode error:" + e.getMessage());
             }
         }
-        builder.deleteCharAt(builder.lastIndexOf(","));
-        return builder;
+        jsonStringer.value(value);
     }
 
-    private static StringBuilder expandJsonArray(StringBuilder builder, String value, int level, char[] spaces) throws JSONException {
-        JSONArray jsonArray = new JSONArray(value);
-        for (int i = 0; i < jsonArray.length(); i++) {
-            Object object = jsonArray.get(i);
-            if (isValidValue(object.toString())) {
-                appendSpaces(builder, level, spaces);
-                appendValue(builder, object).append(",\n");
-            } else if (isJsonArray(object.toString())) {
-                appendSpaces(builder, level, spaces).append("[\n");
-                expandJsonArray(builder, object.toString(), level + 1, spaces);
-                appendSpaces(builder, level, spaces).append("],\n");
-            } else if (isJsonObject(object.toString())) {
-                appendSpaces(builder, level, spaces).append("{\n");
-                expandJsonObject(builder, object.toString(), level + 1, spaces);
-                appendSpaces(builder, level, spaces).append("},\n");
-            } else {
-                throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
-            }
-        }
-        builder.deleteCharAt(builder.lastIndexOf(","));
-        return builder;
+    private static boolean isContainer(String value) {
+        JsonType type = JsonValidator.sniff(value);
+        return type == JsonType.OBJECT || type == JsonType.ARRAY;
     }
 
-    private static StringBuilder appendValue(StringBuilder builder, Object object) {
-        if (object == null) {
-            builder.append("\"\"");
-        } else if (object instanceof String) {
-            builder.append("\"").append(object).append("\"");
-        } else {
-            builder.append(object);
+    private static JSONStringer compressJson(String jsonString, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
+        Object object = null;
+        try {
+            object = new JSONTokener(jsonString).nextValue();
+        } catch (JSONException e) {
+            LogUtil.e(TAG, "compressJson, error:" + e.getMessage());
         }
-        return builder;
-    }
-
-    private static StringBuilder appendSpaces(StringBuilder builder, int level, char[] spaces) {
-        for (int i = 0; i < level; i++) {
-            builder.append(spaces);
+        if (object instanceof JSONObject) {
+            return compressJsonObject((JSONObject) object, jsonStringer, isEncode);
+        } else if (object instanceof JSONArray) {
+            return compressJsonArray((JSONArray) object, jsonStringer, isEncode);
         }
-        return builder;
+        throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
     }
 }
@@ -14,10 +14,27 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public final class ReflectUtils {
 
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    /**
+     * Marks a lookup that has already failed, so the next miss fails fast as well.
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * Resolved and already accessible members, keyed by (class, name, argument types).
+     * Values are either the member or {@link #NOT_FOUND}.
+     */
+    private static final ConcurrentHashMap<MemberKey, Object> FIELD_CACHE = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<MemberKey, Object> METHOD_CACHE = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<MemberKey, Object> CONSTRUCTOR_CACHE = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<MemberKey, ProxyTarget> PROXY_CACHE = new ConcurrentHashMap<>();
+
     private final Class<?> type;
 
     private final Object object;
@@ -120,10 +137,25 @@ public final class ReflectUtils {
      * @return the single {@link ReflectUtils} instance
      */
     public ReflectUtils newInstance(Object... args) {
-        Class<?>[] types = getArgsType(args);
+        return newInstance(getConstructor(getArgsType(args)), args);
+    }
+
+    private Constructor<?> getConstructor(final Class<?>[] types) {
+        MemberKey key = new MemberKey(type(), CONSTRUCTOR_NAME, types);
+        Object cached = CONSTRUCTOR_CACHE.get(key);
+        if (cached == null) {
+            cached = cache(CONSTRUCTOR_CACHE, key, resolveConstructor(types));
+        }
+        if (cached == NOT_FOUND) {
+            throw new ReflectException(new NoSuchMethodException("No similar constructor with params "
+                    + Arrays.toString(types) + " could be found on type " + type() + "."));
+        }
+        return (Constructor<?>) cached;
+    }
+
+    private Object resolveConstructor(final Class<?>[] types) {
         try {
-            Constructor<?> constructor = type().getDeclaredConstructor(types);
-            return newInstance(constructor, args);
+            return accessible(type().getDeclaredConstructor(types));
         } catch (NoSuchMethodException e) {
             List<Constructor<?>> list = new ArrayList<>();
             for (Constructor<?> constructor : type().getDeclaredConstructors()) {
@@ -132,11 +164,10 @@ public final class ReflectUtils {
                 }
             }
             if (list.isEmpty()) {
-                throw new ReflectException(e);
-            } else {
-                sortConstructors(list);
-                return newInstance(list.get(0), args);
+                return NOT_FOUND;
             }
+            sortConstructors(list);
+            return accessible(list.get(0));
         }
     }
 
@@ -175,7 +206,7 @@ public final class ReflectUtils {
         try {
             return new ReflectUtils(
                     constructor.getDeclaringClass(),
-                    accessible(constructor).newInstance(args)
+                    constructor.newInstance(args)
             );
         } catch (Exception e) {
             throw new ReflectException(e);
@@ -219,7 +250,22 @@ public final class ReflectUtils {
     }
 
     private Field getField(String name) throws IllegalAccessException {
+        MemberKey key = new MemberKey(type(), name, null);
+        Object cached = FIELD_CACHE.get(key);
+        if (cached == null) {
+            cached = cache(FIELD_CACHE, key, resolveField(name));
+        }
+        if (cached == NOT_FOUND) {
+            throw new ReflectException(new NoSuchFieldException(name));
+        }
+        return (Field) cached;
+    }
+
+    private Object resolveField(String name) throws IllegalAccessException {
         Field field = getAccessibleField(name);
+        if (field == null) {
+            return NOT_FOUND;
+        }
         if ((field.getModifiers() & Modifier.FINAL) == Modifier.FINAL) {
             try {
                 Field modifiersField = Field.class.getDeclaredField("modifiers");
@@ -245,7 +291,7 @@ public final class ReflectUtils {
                 }
                 type = type.getSuperclass();
             } while (type != null);
-            throw new ReflectException(e);
+            return null;
         }
     }
 
@@ -280,23 +326,48 @@ public final class ReflectUtils {
      * @throws ReflectException if reflect unsuccessfully
      */
     public ReflectUtils method(final String name, final Object... args) throws ReflectException {
-        Class<?>[] types = getArgsType(args);
+        return method(getMethod(name, getArgsType(args)), object, args);
+    }
+
+    private Method getMethod(final String name, final Class<?>[] types) {
+        Method method = findMethod(name, types);
+        if (method == null) {
+            throw noSuchMethod(name, types);
+        }
+        return method;
+    }
+
+    /**
+     * @return the cached accessible method, or null if there is none
+     */
+    private Method findMethod(final String name, final Class<?>[] types) {
+        MemberKey key = new MemberKey(type(), name, types);
+        Object cached = METHOD_CACHE.get(key);
+        if (cached == null) {
+            cached = cache(METHOD_CACHE, key, resolveMethod(name, types));
+        }
+        return cached == NOT_FOUND ? null : (Method) cached;
+    }
+
+    private ReflectException noSuchMethod(final String name, final Class<?>[] types) {
+        return new ReflectException(new NoSuchMethodException("No similar method " + name + " with params "
+                + Arrays.toString(types) + " could be found on type " + type() + "."));
+    }
+
+    private Object resolveMethod(final String name, final Class<?>[] types) {
         try {
-            Method method = exactMethod(name, types);
-            return method(method, object, args);
+            return accessible(exactMethod(name, types));
         } catch (NoSuchMethodException e) {
             try {
-                Method method = similarMethod(name, types);
-                return method(method, object, args);
+                return accessible(similarMethod(name, types));
             } catch (NoSuchMethodException e1) {
-                throw new ReflectException(e1);
+                return NOT_FOUND;
             }
         }
     }
 
     private ReflectUtils method(final Method method, final Object obj, final Object... args) {
         try {
-            accessible(method);
             if (method.getReturnType() == void.class) {
                 method.invoke(obj, args);
                 return reflect(obj);
@@ -411,6 +482,45 @@ public final class ReflectUtils {
         return accessible;
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // accessor
+    ///////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Resolve the field once and return a reusable getter for it.
+     * Reading through the getter skips the lookup and does not wrap the value
+     * in a new {@link ReflectUtils}.
+     *
+     * @param name The name of field.
+     * @param <T>  The value type.
+     * @return the getter
+     * @throws ReflectException if the field could not be found
+     */
+    public <T> FieldGetter<T> fieldGetter(final String name) throws ReflectException {
+        try {
+            return new FieldGetter<>(getField(name));
+        } catch (IllegalAccessException e) {
+            throw new ReflectException(e);
+        }
+    }
+
+    /**
+     * Resolve the method once and return a reusable invoker for it.
+     * Invoking through the invoker skips the lookup and does not wrap the result
+     * in a new {@link ReflectUtils}.
+     *
+     * @param name           The name of method.
+     * @param parameterTypes The declared parameter types.
+     * @param <R>            The return type.
+     * @return the invoker
+     * @throws ReflectException if the method could not be found
+     */
+    public <R> Invoker<R> invoker(final String name, final Class<?>... parameterTypes) throws ReflectException {
+        //the array becomes part of the cache key, so the caller must not be able to change it afterwards
+        Class<?>[] types = parameterTypes == null ? new Class<?>[0] : parameterTypes.clone();
+        return new Invoker<>(getMethod(name, types));
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // proxy
     ///////////////////////////////////////////////////////////////////////////
@@ -418,41 +528,119 @@ public final class ReflectUtils {
     /**
      * Create a proxy for the wrapped object allowing to typesafely invoke
      * methods on it using a custom interface.
+     * <p>
+     * Each interface method is resolved once per wrapped type, either to a real
+     * method or, for a {@link Map}, to a get/set of the matching property, and
+     * later calls reuse that result. If no method takes the declared parameter
+     * types, each call is matched by its runtime argument types instead, and
+     * those lookups are cached like {@link #method(String, Object...)}.
      *
      * @param proxyType The interface type that is implemented by the proxy.
      * @return a proxy for the wrapped object
      */
     @SuppressWarnings("unchecked")
     public <P> P proxy(final Class<P> proxyType) {
-        final boolean isMap = (object instanceof Map);
-        final InvocationHandler handler = new InvocationHandler() {
-            @Override
-            @SuppressWarnings("null")
-            public Object invoke(Object proxy, Method method, Object[] args) {
-                String name = method.getName();
+        return (P) Proxy.newProxyInstance(proxyType.getClassLoader(),
+                new Class[]{proxyType},
+                new ProxyHandler(reflect(object), object instanceof Map));
+    }
+
+    /**
+     * Calls the wrapped object for a proxy. Each interface method is resolved on its first call and
+     * kept by the handler, so later calls only look the {@link Method} up in a small map.
+     */
+    static final class ProxyHandler implements InvocationHandler {
+        private final ReflectUtils target;
+        private final boolean isMap;
+        private final ConcurrentHashMap<Method, ProxyTarget> targets = new ConcurrentHashMap<>();
+
+        ProxyHandler(ReflectUtils target, boolean isMap) {
+            this.target = target;
+            this.isMap = isMap;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            ProxyTarget proxyTarget = resolve(method);
+            Object object = target.object;
+            Method real = proxyTarget.method;
+            if (proxyTarget.kind == ProxyTarget.COMPATIBLE) {
+                real = target.findMethod(method.getName(), target.getArgsType(args));
+            }
+            if (real != null) {
                 try {
-                    return reflect(object).method(name, args).get();
-                } catch (ReflectException e) {
-                    if (isMap) {
-                        Map<String, Object> map = (Map<String, Object>) object;
-                        int length = (args == null ? 0 : args.length);
-
-                        if (length == 0 && name.startsWith("get")) {
-                            return map.get(property(name.substring(3)));
-                        } else if (length == 0 && name.startsWith("is")) {
-                            return map.get(property(name.substring(2)));
-                        } else if (length == 1 && name.startsWith("set")) {
-                            map.put(property(name.substring(3)), args[0]);
-                            return null;
-                        }
+                    Object result = real.invoke(object, args);
+                    return real.getReturnType() == void.class ? object : result;
+                } catch (Exception e) {
+                    throw new ReflectException(e);
+                }
+            }
+            switch (proxyTarget.kind) {
+                case ProxyTarget.MAP_GET:
+                    return ((Map<String, Object>) object).get(proxyTarget.property);
+                case ProxyTarget.COMPATIBLE:
+                    if (proxyTarget.property != null) {
+                        ((Map<String, Object>) object).put(proxyTarget.property, args[0]);
+                        return null;
                     }
-                    throw e;
+                    throw target.noSuchMethod(method.getName(), target.getArgsType(args));
+                default:
+                    throw target.noSuchMethod(method.getName(), method.getParameterTypes());
+            }
+        }
+
+        /**
+         * @return the target resolved for this method, the same instance on every call
+         */
+        ProxyTarget resolve(Method method) {
+            ProxyTarget proxyTarget = targets.get(method);
+            if (proxyTarget == null) {
+                proxyTarget = target.proxyTarget(method, isMap);
+                ProxyTarget previous = targets.putIfAbsent(method, proxyTarget);
+                if (previous != null) {
+                    proxyTarget = previous;
                 }
             }
-        };
-        return (P) Proxy.newProxyInstance(proxyType.getClassLoader(),
-                new Class[]{proxyType},
-                handler);
+            return proxyTarget;
+        }
+    }
+
+    private ProxyTarget proxyTarget(final Method method, final boolean isMap) {
+        MemberKey key = new MemberKey(type(), method.getName(), method.getParameterTypes());
+        ProxyTarget proxyTarget = PROXY_CACHE.get(key);
+        if (proxyTarget == null) {
+            proxyTarget = resolveProxyTarget(method, isMap);
+            ProxyTarget previous = PROXY_CACHE.putIfAbsent(key, proxyTarget);
+            if (previous != null) {
+                proxyTarget = previous;
+            }
+        }
+        return proxyTarget;
+    }
+
+    private ProxyTarget resolveProxyTarget(final Method method, final boolean isMap) {
+        String name = method.getName();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Method real = findMethod(name, parameterTypes);
+        if (real != null) {
+            return new ProxyTarget(ProxyTarget.METHOD, real, null);
+        }
+        int length = parameterTypes.length;
+        String setProperty = isMap && length == 1 && name.startsWith("set") ? property(name.substring(3)) : null;
+        if (length > 0) {
+            // no method takes the declared types, but one may still take the runtime argument types,
+            // e.g. setX(Object) reaching setX(String); those lookups go through the method cache per call
+            return new ProxyTarget(ProxyTarget.COMPATIBLE, null, setProperty);
+        }
+        if (isMap) {
+            if (name.startsWith("get")) {
+                return new ProxyTarget(ProxyTarget.MAP_GET, null, property(name.substring(3)));
+            } else if (name.startsWith("is")) {
+                return new ProxyTarget(ProxyTarget.MAP_GET, null, property(name.substring(2)));
+            }
+        }
+        return new ProxyTarget(ProxyTarget.NOT_FOUND, null, null);
     }
 
     /**
@@ -474,6 +662,22 @@ public final class ReflectUtils {
         return type;
     }
 
+    /**
+     * Drop all cached fields, methods and constructors, e.g. after a class loader is discarded.
+     */
+    public static void clearCache() {
+        FIELD_CACHE.clear();
+        METHOD_CACHE.clear();
+        CONSTRUCTOR_CACHE.clear();
+        PROXY_CACHE.clear();
+    }
+
+    private static Object cache(final ConcurrentHashMap<MemberKey, Object> cache,
+                                final MemberKey key, final Object value) {
+        Object previous = cache.putIfAbsent(key, value);
+        return previous == null ? value : previous;
+    }
+
     private Class<?> wrapper(final Class<?> type) {
         if (type == null) {
             return null;
@@ -530,6 +734,166 @@ public final class ReflectUtils {
     private static class NULL {
     }
 
+    /**
+     * Reads a field that has been resolved and made accessible once.
+     * Primitive fields can be read with the typed getters to avoid boxing.
+     *
+     * @param <T> The value type.
+     */
+    public static final class FieldGetter<T> {
+
+        private final Field field;
+
+        private FieldGetter(Field field) {
+            this.field = field;
+        }
+
+        /**
+         * @param target The object to read from, or null for a static field.
+         * @return the value
+         */
+        @SuppressWarnings("unchecked")
+        public T get(Object target) {
+            try {
+                return (T) field.get(target);
+            } catch (IllegalAccessException e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public int getInt(Object target) {
+            try {
+                return field.getInt(target);
+            } catch (IllegalAccessException e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public long getLong(Object target) {
+            try {
+                return field.getLong(target);
+            } catch (IllegalAccessException e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public float getFloat(Object target) {
+            try {
+                return field.getFloat(target);
+            } catch (IllegalAccessException e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public double getDouble(Object target) {
+            try {
+                return field.getDouble(target);
+            } catch (IllegalAccessException e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public boolean getBoolean(Object target) {
+            try {
+                return field.getBoolean(target);
+            } catch (IllegalAccessException e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public Field getField() {
+            return field;
+        }
+    }
+
+    /**
+     * Invokes a method that has been resolved and made accessible once.
+     *
+     * @param <R> The return type.
+     */
+    public static final class Invoker<R> {
+
+        private static final Object[] NO_ARGS = new Object[0];
+
+        private final Method method;
+
+        private Invoker(Method method) {
+            this.method = method;
+        }
+
+        /**
+         * @param target The object to invoke on, or null for a static method.
+         * @param args   The args.
+         * @return the result, null for a void method
+         * @throws ReflectException if the invocation fails or the method throws
+         */
+        @SuppressWarnings("unchecked")
+        public R invoke(Object target, Object... args) throws ReflectException {
+            try {
+                return (R) method.invoke(target, args == null ? NO_ARGS : args);
+            } catch (Exception e) {
+                throw new ReflectException(e);
+            }
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+    }
+
+    static final class ProxyTarget {
+
+        static final int NOT_FOUND = 0;
+        static final int METHOD = 1;
+        static final int MAP_GET = 2;
+        /**
+         * Resolved per call from the runtime argument types, falling back to a map set if there is one.
+         */
+        static final int COMPATIBLE = 3;
+
+        final int kind;
+        final Method method;
+        final String property;
+
+        ProxyTarget(int kind, Method method, String property) {
+            this.kind = kind;
+            this.method = method;
+            this.property = property;
+        }
+    }
+
+    private static final class MemberKey {
+
+        private final Class<?> type;
+        private final String name;
+        private final Class<?>[] argTypes;
+        private final int hash;
+
+        MemberKey(Class<?> type, String name, Class<?>[] argTypes) {
+            this.type = type;
+            this.name = name;
+            this.argTypes = argTypes;
+            this.hash = 31 * (31 * type.hashCode() + name.hashCode()) + Arrays.hashCode(argTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) obj;
+            return type == other.type && name.equals(other.name) && Arrays.equals(argTypes, other.argTypes);
+        }
+    }
+
     public static class ReflectException extends RuntimeException {
 
         private static final long serialVersionUID = 858774075258496016L;
@@ -0,0 +1,288 @@
+package com.ngb.wyn.common.utils.file;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import com.ngb.wyn.common.utils.FileUtil;
+import com.ngb.wyn.common.utils.LogUtil;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 原子写文件：先写同目录下的临时文件并fsync，再rename覆盖目标文件，最后fsync所在目录
+ * 任意时刻崩溃，目标文件要么是旧内容，要么是完整的新内容，不会出现写了一半的文件。
+ * <p>
+ * 静态方法{@link #write(File, byte[])}每次写入都fsync一次目录；
+ * 实例方法{@link #writeGrouped(File, byte[])}为组提交模式：同一时间窗口内的多次写入共享一次目录fsync，
+ * 调用在所属批次的目录fsync完成后才返回，返回true即表示已持久化。
+ * <p>
+ * 进程崩溃时可能在目标目录留下".文件名-随机数.tmp"临时文件，本进程第一次写某个目标文件前会先删除这些残留。
+ * 不支持多个进程同时写同一个目标文件。
+ */
+public class AtomicFileWriter {
+
+    private static final String TAG = "AtomicFileWriter";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * 本进程已清理过残留临时文件的目标文件路径
+     */
+    private static final Set<String> sCleanedTargets = new HashSet<>();
+
+    private final long mWindowMillis;
+    private final int mMaxBatchSize;
+    private final Object mLock = new Object();
+    private Batch mCurrentBatch;
+
+    /**
+     * @param windowMillis 组提交的时间窗口，窗口内的写入共享目录fsync
+     * @param maxBatchSize 一个批次最多包含的写入数，达到后立即提交，不再等待窗口结束
+     */
+    public AtomicFileWriter(long windowMillis, int maxBatchSize) {
+        mWindowMillis = windowMillis;
+        mMaxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * 原子写入并立即持久化
+     *
+     * @param target 目标文件，已存在时被原子替换
+     * @param bytes  文件内容
+     * @return 是否写入并持久化成功
+     */
+    public static boolean write(File target, byte[] bytes) {
+        try {
+            writeAndRename(target, bytes);
+            syncDirectory(target.getAbsoluteFile().getParentFile());
+            return true;
+        } catch (IOException e) {
+            LogUtil.e(TAG, "write, error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 组提交模式的原子写入，写临时文件、fsync、rename在调用线程完成，目录fsync与同批次的其他写入合并
+     *
+     * @param target 目标文件，已存在时被原子替换
+     * @param bytes  文件内容
+     * @return 是否写入并持久化成功
+     */
+    public boolean writeGrouped(File target, byte[] bytes) {
+        try {
+            writeAndRename(target, bytes);
+        } catch (IOException e) {
+            LogUtil.e(TAG, "writeGrouped, error: " + e.getMessage());
+            return false;
+        }
+        File dir = target.getAbsoluteFile().getParentFile();
+        Batch batch;
+        boolean isLeader;
+        synchronized (mLock) {
+            if (mCurrentBatch == null) {
+                mCurrentBatch = new Batch();
+                isLeader = true;
+            } else {
+                isLeader = false;
+            }
+            batch = mCurrentBatch;
+            batch.add(dir);
+            if (batch.mCount >= mMaxBatchSize) {
+                //批次已满，立即关闭，之后的写入进入新批次，不会超过mMaxBatchSize
+                mCurrentBatch = null;
+                mLock.notifyAll();
+            }
+        }
+        if (isLeader) {
+            //批次的第一个写入者负责等待窗口结束并提交
+            synchronized (mLock) {
+                long deadline = System.currentTimeMillis() + mWindowMillis;
+                long remaining = mWindowMillis;
+                while (batch.mCount < mMaxBatchSize && remaining > 0) {
+                    try {
+                        mLock.wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    remaining = deadline - System.currentTimeMillis();
+                }
+                //批次已满时已被关闭，当前批次可能是之后的写入新建的
+                if (mCurrentBatch == batch) {
+                    mCurrentBatch = null;
+                }
+            }
+            batch.commit(this);
+        }
+        return batch.await(dir);
+    }
+
+    private static void writeAndRename(File target, byte[] bytes) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null && !FileUtil.createFileDir(dir)) {
+            throw new IOException("create dir fail: " + dir);
+        }
+        deleteStaleTempFiles(target);
+        File temp = File.createTempFile("." + target.getName() + "-", TEMP_SUFFIX, dir);
+        FileOutputStream fileOutputStream = null;
+        boolean success = false;
+        try {
+            fileOutputStream = new FileOutputStream(temp);
+            fileOutputStream.write(bytes);
+            fileOutputStream.flush();
+            fileOutputStream.getFD().sync();
+            fileOutputStream.close();
+            fileOutputStream = null;
+            if (!temp.renameTo(target)) {
+                throw new IOException("rename fail: " + temp + " -> " + target);
+            }
+            success = true;
+        } finally {
+            FileUtil.closeSilently(fileOutputStream);
+            if (!success && !temp.delete()) {
+                LogUtil.w(TAG, "delete temp file fail: " + temp);
+            }
+        }
+    }
+
+    /**
+     * 删除之前崩溃残留的目标文件临时文件，每个目标文件在本进程只清理一次。
+     * 清理在锁内完成，同一目标文件的其他写入等清理结束后才创建临时文件，不会被误删
+     *
+     * @param target 目标文件
+     */
+    private static void deleteStaleTempFiles(File target) {
+        File file = target.getAbsoluteFile();
+        synchronized (sCleanedTargets) {
+            if (!sCleanedTargets.add(file.getPath())) {
+                return;
+            }
+            File dir = file.getParentFile();
+            String[] names = dir == null ? null : dir.list();
+            if (names == null) {
+                return;
+            }
+            String prefix = "." + file.getName() + "-";
+            for (String name : names) {
+                if (isTempFileName(name, prefix) && !new File(dir, name).delete()) {
+                    LogUtil.w(TAG, "delete stale temp file fail: " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return name是否为File.createTempFile(prefix, TEMP_SUFFIX)生成的文件名，中间部分是可能带负号的随机数
+     */
+    static boolean isTempFileName(String name, String prefix) {
+        if (!name.startsWith(prefix) || !name.endsWith(TEMP_SUFFIX)) {
+            return false;
+        }
+        int start = prefix.length();
+        int end = name.length() - TEMP_SUFFIX.length();
+        if (start < end && name.charAt(start) == '-') {
+            start++;
+        }
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 组提交批次fsync目录，测试中覆盖以统计调用
+     *
+     * @param dir 目录
+     * @throws IOException fsync失败
+     */
+    void syncBatchDirectory(File dir) throws IOException {
+        syncDirectory(dir);
+    }
+
+    /**
+     * fsync目录，使目录中的rename/新建持久化
+     *
+     * @param dir 目录
+     * @throws IOException fsync失败
+     */
+    public static void syncDirectory(File dir) throws IOException {
+        if (dir == null) {
+            return;
+        }
+        FileDescriptor fd = null;
+        try {
+            fd = Os.open(dir.getAbsolutePath(), OsConstants.O_RDONLY, 0);
+            Os.fsync(fd);
+        } catch (ErrnoException e) {
+            throw new IOException("sync dir fail: " + dir + ", " + e.getMessage());
+        } finally {
+            if (fd != null) {
+                try {
+                    Os.close(fd);
+                } catch (ErrnoException e) {
+                    LogUtil.e(TAG, "syncDirectory, close error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个组提交批次，记录涉及的目录，提交时每个目录只fsync一次
+     */
+    private static class Batch {
+        private final Map<File, Boolean> mDirs = new HashMap<>();
+        private int mCount;
+        private boolean mCommitted;
+
+        void add(File dir) {
+            mDirs.put(dir, Boolean.FALSE);
+            mCount++;
+        }
+
+        void commit(AtomicFileWriter writer) {
+            Map<File, Boolean> results = new HashMap<>(mDirs.size() * 2);
+            for (File dir : mDirs.keySet()) {
+                boolean success;
+                try {
+                    writer.syncBatchDirectory(dir);
+                    success = true;
+                } catch (IOException e) {
+                    LogUtil.e(TAG, "commit, error: " + e.getMessage());
+                    success = false;
+                }
+                results.put(dir, success);
+            }
+            synchronized (this) {
+                mDirs.putAll(results);
+                mCommitted = true;
+                notifyAll();
+            }
+        }
+
+        synchronized boolean await(File dir) {
+            while (!mCommitted) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            Boolean success = mDirs.get(dir);
+            return success != null && success;
+        }
+    }
+}
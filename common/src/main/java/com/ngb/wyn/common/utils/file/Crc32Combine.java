@@ -0,0 +1,92 @@
+package com.ngb.wyn.common.utils.file;
+
+/**
+ * CRC32合并，移植自zlib的crc32_combine
+ * 分块并行计算出各块的CRC32后，按顺序合并即可得到整个数据的CRC32，无需再读一遍原始数据
+ */
+public final class Crc32Combine {
+
+    /**
+     * CRC32多项式（反射形式），与{@link java.util.zip.CRC32}一致
+     */
+    public static final int CRC32_POLY = 0xedb88320;
+
+    private static final int GF2_DIM = 32;
+
+    private Crc32Combine() {
+    }
+
+    /**
+     * @param crc1 前一段数据的CRC32
+     * @param crc2 后一段数据的CRC32
+     * @param len2 后一段数据的长度
+     * @return 两段数据拼接后的CRC32
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        return combine(crc1, crc2, len2, CRC32_POLY);
+    }
+
+    /**
+     * @param crc1 前一段数据的校验值
+     * @param crc2 后一段数据的校验值
+     * @param len2 后一段数据的长度
+     * @param poly 反射形式的多项式，如CRC32C为0x82f63b78
+     * @return 两段数据拼接后的校验值
+     */
+    public static long combine(long crc1, long crc2, long len2, int poly) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        int[] even = new int[GF2_DIM];
+        int[] odd = new int[GF2_DIM];
+
+        //奇数次幂算子：一个0比特
+        odd[0] = poly;
+        int row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        //两个0比特
+        gf2MatrixSquare(even, odd);
+        //四个0比特
+        gf2MatrixSquare(odd, even);
+
+        int crc = (int) crc1;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc = gf2MatrixTimes(even, crc);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc = gf2MatrixTimes(odd, crc);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        return (crc ^ (int) crc2) & 0xffffffffL;
+    }
+
+    private static int gf2MatrixTimes(int[] mat, int vec) {
+        int sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(int[] square, int[] mat) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
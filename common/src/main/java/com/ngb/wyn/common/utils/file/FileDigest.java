@@ -0,0 +1,360 @@
+package com.ngb.wyn.common.utils.file;
+
+import com.ngb.wyn.common.utils.FileUtil;
+import com.ngb.wyn.common.utils.LogUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * 流式文件摘要，支持SHA-256、MD5、CRC32
+ * 通过FileChannel读入线程复用的缓冲区，不会把整个文件读入内存；
+ * 结果按 路径+大小+修改时间 缓存，文件未变化时不会重复计算。
+ * <p>
+ * CRC32可分段并行计算后合并（{@link #crc32Parallel(File, int)}）；SHA-256、MD5只能顺序计算，
+ * 树形哈希的结果与标准摘要不同，无法用于和服务端下发的摘要比对，因此不提供。
+ */
+public final class FileDigest {
+
+    private static final String TAG = "FileDigest";
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_CACHE_SIZE = 256;
+    private static final long MIN_PARALLEL_SEGMENT = 4 * 1024 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    private static final Map<String, CacheEntry> CACHE =
+            new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                    return size() > MAX_CACHE_SIZE;
+                }
+            };
+
+    public enum Algorithm {
+        SHA_256("SHA-256"),
+        MD5("MD5"),
+        CRC32("CRC32");
+
+        private final String mName;
+
+        Algorithm(String name) {
+            mName = name;
+        }
+
+        public String getName() {
+            return mName;
+        }
+    }
+
+    private FileDigest() {
+    }
+
+    /**
+     * 计算文件摘要，文件大小和修改时间未变化时直接返回缓存结果
+     *
+     * @param file      文件
+     * @param algorithm 摘要算法
+     * @return 小写十六进制摘要，失败返回null
+     */
+    public static String digest(File file, Algorithm algorithm) {
+        String key = algorithm.getName() + ':' + file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (CACHE) {
+            CacheEntry entry = CACHE.get(key);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                return entry.digest;
+            }
+        }
+        String digest = digestNoCache(file, algorithm);
+        //计算期间文件被修改过的结果不缓存
+        if (digest != null && file.length() == length && file.lastModified() == lastModified) {
+            synchronized (CACHE) {
+                CACHE.put(key, new CacheEntry(length, lastModified, digest));
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * 计算文件摘要，不读写缓存
+     *
+     * @param file      文件
+     * @param algorithm 摘要算法
+     * @return 小写十六进制摘要，失败返回null
+     */
+    public static String digestNoCache(File file, Algorithm algorithm) {
+        Session session = newSession(algorithm);
+        if (session == null || !session.update(file)) {
+            return null;
+        }
+        return session.digest();
+    }
+
+    /**
+     * 分段并行计算CRC32，各段结果通过{@link Crc32Combine}合并，与顺序计算结果一致
+     *
+     * @param file        文件
+     * @param parallelism 线程数，小于1时使用CPU核数
+     * @return 小写十六进制CRC32，失败返回null
+     */
+    public static String crc32Parallel(File file, int parallelism) {
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        final long length = file.length();
+        int segments = (int) Math.max(1, Math.min(parallelism, length / MIN_PARALLEL_SEGMENT));
+        if (segments == 1) {
+            return digestNoCache(file, Algorithm.CRC32);
+        }
+        long segmentSize = (length + segments - 1) / segments;
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+        try {
+            List<Future<Crc32Task>> futures = new ArrayList<>(segments);
+            for (int i = 0; i < segments; i++) {
+                long start = i * segmentSize;
+                futures.add(executor.submit(new Crc32Task(file, start, Math.min(segmentSize, length - start))));
+            }
+            long crc = 0;
+            long total = 0;
+            for (int i = 0; i < segments; i++) {
+                Crc32Task task = futures.get(i).get();
+                //读取不足说明文件被截断，后续分段的偏移已不对应，合并结果没有意义
+                if (task.mBytes != task.mLength) {
+                    LogUtil.e(TAG, "crc32Parallel, short read at " + task.mStart + ": " + task.mBytes + "/" + task.mLength);
+                    return null;
+                }
+                crc = Crc32Combine.combine(crc, task.mCrc32.getValue(), task.mBytes);
+                total += task.mBytes;
+            }
+            if (total != length || file.length() != length) {
+                LogUtil.e(TAG, "crc32Parallel, file changed while reading: " + file);
+                return null;
+            }
+            return toHex(crc, 4);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LogUtil.e(TAG, "crc32Parallel, interrupted");
+        } catch (ExecutionException e) {
+            LogUtil.e(TAG, "crc32Parallel, error: " + e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return null;
+    }
+
+    /**
+     * 创建增量摘要会话，用于边下载边计算：每次{@link Session#update(File)}只读取上次之后新增的部分
+     *
+     * @param algorithm 摘要算法
+     * @return 会话，算法不可用时返回null
+     */
+    public static Session newSession(Algorithm algorithm) {
+        try {
+            return new Session(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            LogUtil.e(TAG, "newSession, error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static String toHex(long value, int byteCount) {
+        byte[] bytes = new byte[byteCount];
+        for (int i = byteCount - 1; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return toHex(bytes);
+    }
+
+    /**
+     * 读取文件[start, start + length)区间，依次交给consumer
+     *
+     * @return 实际读取的字节数，文件变短时小于length
+     */
+    private static long read(File file, long start, long length, Consumer consumer) throws IOException {
+        byte[] buffer = BUFFER.get();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                byteBuffer.clear();
+                byteBuffer.limit((int) Math.min(buffer.length, end - position));
+                int count = channel.read(byteBuffer, position);
+                if (count < 0) {
+                    break;
+                }
+                consumer.accept(buffer, count);
+                position += count;
+            }
+            return position - start;
+        } finally {
+            FileUtil.closeSilently(randomAccessFile);
+        }
+    }
+
+    private interface Consumer {
+        void accept(byte[] buffer, int count);
+    }
+
+    private static class Crc32Task implements Callable<Crc32Task>, Consumer {
+        final File mFile;
+        final long mStart;
+        final long mLength;
+        final CRC32 mCrc32 = new CRC32();
+        long mBytes;
+
+        Crc32Task(File file, long start, long length) {
+            mFile = file;
+            mStart = start;
+            mLength = length;
+        }
+
+        @Override
+        public Crc32Task call() throws IOException {
+            mBytes = read(mFile, mStart, mLength, this);
+            return this;
+        }
+
+        @Override
+        public void accept(byte[] buffer, int count) {
+            mCrc32.update(buffer, 0, count);
+        }
+    }
+
+    /**
+     * 增量摘要会话，记录已处理的字节数，非线程安全
+     */
+    public static class Session implements Consumer {
+        private final Algorithm mAlgorithm;
+        private final MessageDigest mMessageDigest;
+        private final CRC32 mCrc32;
+        private long mPosition;
+
+        Session(Algorithm algorithm) throws NoSuchAlgorithmException {
+            mAlgorithm = algorithm;
+            if (algorithm == Algorithm.CRC32) {
+                mMessageDigest = null;
+                mCrc32 = new CRC32();
+            } else {
+                mMessageDigest = MessageDigest.getInstance(algorithm.getName());
+                mCrc32 = null;
+            }
+        }
+
+        public Algorithm getAlgorithm() {
+            return mAlgorithm;
+        }
+
+        /**
+         * @return 已处理的字节数
+         */
+        public long getPosition() {
+            return mPosition;
+        }
+
+        /**
+         * 读取文件中上次处理位置之后新增的数据
+         *
+         * @param file 文件，只能追加写入，不能修改已处理过的部分
+         * @return 是否读取成功
+         */
+        public boolean update(File file) {
+            long length = file.length();
+            if (length < mPosition) {
+                LogUtil.e(TAG, "update, file truncated: " + file);
+                return false;
+            }
+            try {
+                read(file, mPosition, length - mPosition, this);
+                return true;
+            } catch (IOException e) {
+                LogUtil.e(TAG, "update, error: " + e.getMessage());
+                return false;
+            }
+        }
+
+        public void update(byte[] bytes, int offset, int count) {
+            if (mCrc32 != null) {
+                mCrc32.update(bytes, offset, count);
+            } else {
+                mMessageDigest.update(bytes, offset, count);
+            }
+            mPosition += count;
+        }
+
+        @Override
+        public void accept(byte[] buffer, int count) {
+            update(buffer, 0, count);
+        }
+
+        /**
+         * 返回当前已处理数据的摘要，不影响会话继续update
+         *
+         * @return 小写十六进制摘要，失败返回null
+         */
+        public String digest() {
+            if (mCrc32 != null) {
+                return toHex(mCrc32.getValue(), 4);
+            }
+            try {
+                return toHex(((MessageDigest) mMessageDigest.clone()).digest());
+            } catch (CloneNotSupportedException e) {
+                LogUtil.e(TAG, "digest, error: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    private static class CacheEntry {
+        final long length;
+        final long lastModified;
+        final String digest;
+
+        CacheEntry(long length, long lastModified, String digest) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+}
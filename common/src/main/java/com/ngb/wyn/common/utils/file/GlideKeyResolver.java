@@ -0,0 +1,142 @@
+package com.ngb.wyn.common.utils.file;
+
+import android.util.LruCache;
+
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.signature.EmptySignature;
+import com.ngb.wyn.common.BaseApplication;
+import com.ngb.wyn.common.CommonConstants;
+import com.ngb.wyn.common.utils.LogUtil;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Glide磁盘缓存key（4.0+版本）及缓存文件路径的计算，结果缓存在LRU中
+ * 列表滑动时逐项判断图片是否已缓存，同一个url会被反复计算，命中缓存时不再做SHA-256和字符串拼接；
+ * 未命中时使用线程复用的MessageDigest计算。
+ */
+public final class GlideKeyResolver {
+
+    private static final String TAG = "GlideKeyResolver";
+    private static final int MAX_CACHE_SIZE = 512;
+    private static final String KEY_SUFFIX = ".0";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                LogUtil.e(TAG, "init digest, error:" + e.getMessage());
+                return null;
+            }
+        }
+    };
+
+    private static final LruCache<String, String> KEY_CACHE = new LruCache<>(MAX_CACHE_SIZE);
+    private static final LruCache<String, String> PATH_CACHE = new LruCache<>(MAX_CACHE_SIZE);
+    private static volatile String sCacheDirPrefix;
+
+    private GlideKeyResolver() {
+    }
+
+    /**
+     * @param url 图片url
+     * @return 返回图片在缓存中的key值，失败返回null
+     */
+    public static String getSafeKey(String url) {
+        String safeKey = KEY_CACHE.get(url);
+        if (safeKey != null) {
+            return safeKey;
+        }
+        MessageDigest messageDigest = SHA_256.get();
+        if (messageDigest == null) {
+            return null;
+        }
+        messageDigest.reset();
+        EmptySignature.obtain().updateDiskCacheKey(messageDigest);
+        new GlideUrl(url).updateDiskCacheKey(messageDigest);
+        safeKey = FileDigest.toHex(messageDigest.digest()) + KEY_SUFFIX;
+        KEY_CACHE.put(url, safeKey);
+        return safeKey;
+    }
+
+    /**
+     * @param url 图片地址
+     * @return 返回Glide缓存该url图片在缓存中的路径，失败返回null
+     */
+    public static String getFilePath(String url) {
+        String path = PATH_CACHE.get(url);
+        if (path != null) {
+            return path;
+        }
+        String safeKey = getSafeKey(url);
+        if (safeKey == null) {
+            return null;
+        }
+        path = getCacheDirPrefix() + safeKey;
+        PATH_CACHE.put(url, path);
+        return path;
+    }
+
+    /**
+     * 批量计算一页url的缓存key
+     *
+     * @param urls 图片url列表
+     * @return 与urls一一对应的key，失败的位置为null
+     */
+    public static String[] getSafeKeys(List<String> urls) {
+        String[] keys = new String[urls.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = getSafeKey(urls.get(i));
+        }
+        return keys;
+    }
+
+    /**
+     * 批量计算一页url的缓存文件路径
+     *
+     * @param urls 图片url列表
+     * @return 与urls一一对应的路径，失败的位置为null
+     */
+    public static String[] getFilePaths(List<String> urls) {
+        String[] paths = new String[urls.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = getFilePath(urls.get(i));
+        }
+        return paths;
+    }
+
+    /**
+     * 批量判断一页url的图片是否已在磁盘缓存中
+     *
+     * @param urls 图片url列表
+     * @return 与urls一一对应的结果
+     */
+    public static boolean[] isCached(List<String> urls) {
+        boolean[] cached = new boolean[urls.size()];
+        for (int i = 0; i < cached.length; i++) {
+            String path = getFilePath(urls.get(i));
+            cached[i] = path != null && new File(path).exists();
+        }
+        return cached;
+    }
+
+    public static void clearCache() {
+        KEY_CACHE.evictAll();
+        PATH_CACHE.evictAll();
+    }
+
+    private static String getCacheDirPrefix() {
+        String prefix = sCacheDirPrefix;
+        if (prefix == null) {
+            prefix = BaseApplication.getInstance().getCacheDir() + File.separator
+                    + CommonConstants.GLIDE_CACHE_DIR_PATH + File.separator;
+            sCacheDirPrefix = prefix;
+        }
+        return prefix;
+    }
+}
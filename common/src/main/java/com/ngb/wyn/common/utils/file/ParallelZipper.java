@@ -0,0 +1,463 @@
+package com.ngb.wyn.common.utils.file;
+
+import com.ngb.wyn.common.utils.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程并行压缩
+ * 文件按固定大小分块，各块在线程池中独立deflate（非最后一块以SYNC_FLUSH结尾，保证拼接后仍是合法的deflate流），
+ * 再由调用线程按遍历顺序依次写入压缩包，因此压缩包内条目顺序与{@link FileUtil#toZip(String, OutputStream, boolean)}一致。
+ * 同时在途的块数有上限，内存占用不随文件数量、文件大小增长。
+ * <p>
+ * 不支持zip64，条目数或大小超出限制时{@link #isSupported()}返回false，应改用串行压缩。
+ */
+public class ParallelZipper {
+
+    private static final int CHUNK_SIZE = 128 * 1024;
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    //deflate最坏情况下会比原数据稍大，预留余量
+    private static final long MAX_TOTAL_SIZE = MAX_SIZE - MAX_SIZE / 64;
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int DIR_ATTRIBUTE = 0x10;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<Item> mItems = new ArrayList<>();
+    private long mTotalSize;
+
+    /**
+     * @param sourceFile       要压缩的文件（夹）
+     * @param keepDirStructure 是否保留原来的目录结构，同{@link FileUtil#toZip(String, OutputStream, boolean)}
+     */
+    public ParallelZipper(File sourceFile, boolean keepDirStructure) {
+        collect(sourceFile, sourceFile.getName(), keepDirStructure);
+    }
+
+    /**
+     * @return 是否能在不使用zip64的情况下完成压缩
+     */
+    public boolean isSupported() {
+        return mItems.size() <= MAX_ENTRIES && mTotalSize <= MAX_TOTAL_SIZE;
+    }
+
+    /**
+     * @return 待压缩的条目数（含空文件夹）
+     */
+    public int getEntryCount() {
+        return mItems.size();
+    }
+
+    /**
+     * 压缩并写入输出流，输出流不会被关闭
+     *
+     * @param out         压缩文件输出流
+     * @param parallelism 压缩线程数，小于1时使用CPU核数
+     * @throws IOException 读写失败、条目重名或超出zip格式限制
+     */
+    public void writeTo(OutputStream out, int parallelism) throws IOException {
+        if (!isSupported()) {
+            throw new IOException("zip64 required, entries: " + mItems.size() + ", size: " + mTotalSize);
+        }
+        checkDuplicateNames();
+        if (parallelism < 1) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        int maxInFlight = parallelism * IN_FLIGHT_PER_THREAD;
+        ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new WorkerFactory());
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>(maxInFlight);
+        ZipWriter writer = new ZipWriter(out);
+        try {
+            int submitItem = 0;
+            long submitOffset = 0;
+            for (Item item : mItems) {
+                if (item.file == null) {
+                    writer.writeDirectory(item);
+                    continue;
+                }
+                writer.beginFile(item);
+                boolean last = false;
+                while (!last) {
+                    //尽量保持线程池满载：按顺序向后提交块任务，直到达到在途上限
+                    while (pending.size() < maxInFlight && submitItem < mItems.size()) {
+                        Item next = mItems.get(submitItem);
+                        if (next.file == null) {
+                            submitItem++;
+                            continue;
+                        }
+                        int len = (int) Math.min(CHUNK_SIZE, next.length - submitOffset);
+                        boolean isLast = submitOffset + len >= next.length;
+                        pending.add(executor.submit(new DeflateTask(next.file, submitOffset, len, isLast)));
+                        if (isLast) {
+                            submitItem++;
+                            submitOffset = 0;
+                        } else {
+                            submitOffset += len;
+                        }
+                    }
+                    Chunk chunk = await(pending.poll());
+                    writer.writeChunk(chunk);
+                    last = chunk.isLast;
+                }
+                writer.endFile();
+            }
+            writer.finish();
+        } finally {
+            for (Future<Chunk> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private void collect(File sourceFile, String name, boolean keepDirStructure) {
+        if (sourceFile.isFile()) {
+            mItems.add(new Item(name, sourceFile, sourceFile.length(), sourceFile.lastModified()));
+            mTotalSize += sourceFile.length();
+            return;
+        }
+        File[] listFiles = sourceFile.listFiles();
+        if (listFiles == null || listFiles.length == 0) {
+            if (keepDirStructure) {
+                mItems.add(new Item(name + "/", null, 0, sourceFile.lastModified()));
+            }
+        } else {
+            for (File file : listFiles) {
+                collect(file, keepDirStructure ? name + "/" + file.getName() : file.getName(), keepDirStructure);
+            }
+        }
+    }
+
+    private void checkDuplicateNames() throws IOException {
+        Set<String> names = new HashSet<>(mItems.size() * 2);
+        for (Item item : mItems) {
+            if (!names.add(item.name)) {
+                throw new IOException("duplicate entry: " + item.name);
+            }
+        }
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("zip interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static class Item {
+        final String name;
+        final File file;
+        final long length;
+        final long lastModified;
+
+        Item(String name, File file, long length, long lastModified) {
+            this.name = name;
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static class Chunk {
+        final byte[] data;
+        final int rawLength;
+        final long crc;
+        final boolean isLast;
+
+        Chunk(byte[] data, int rawLength, long crc, boolean isLast) {
+            this.data = data;
+            this.rawLength = rawLength;
+            this.crc = crc;
+            this.isLast = isLast;
+        }
+    }
+
+    private static class DeflateTask implements Callable<Chunk> {
+        private final File mFile;
+        private final long mOffset;
+        private final int mLength;
+        private final boolean mIsLast;
+
+        DeflateTask(File file, long offset, int length, boolean isLast) {
+            mFile = file;
+            mOffset = offset;
+            mLength = length;
+            mIsLast = isLast;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            Workspace workspace = ((Worker) Thread.currentThread()).mWorkspace;
+            byte[] input = workspace.input;
+            RandomAccessFile randomAccessFile = new RandomAccessFile(mFile, "r");
+            try {
+                randomAccessFile.seek(mOffset);
+                randomAccessFile.readFully(input, 0, mLength);
+            } finally {
+                FileUtil.closeSilently(randomAccessFile);
+            }
+            CRC32 crc32 = workspace.crc32;
+            crc32.reset();
+            crc32.update(input, 0, mLength);
+            return new Chunk(workspace.deflate(mLength, mIsLast), mLength, crc32.getValue(), mIsLast);
+        }
+    }
+
+    /**
+     * 每个压缩线程独占的Deflater和缓冲区，线程退出时释放Deflater的native内存
+     */
+    private static class Workspace {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final CRC32 crc32 = new CRC32();
+        final byte[] input = new byte[CHUNK_SIZE];
+        byte[] output = new byte[CHUNK_SIZE + CHUNK_SIZE / 8];
+
+        byte[] deflate(int length, boolean isLast) {
+            deflater.reset();
+            deflater.setInput(input, 0, length);
+            int count = 0;
+            if (isLast) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    count += deflater.deflate(ensureOutput(count), count, output.length - count);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(ensureOutput(count), count, output.length - count, Deflater.SYNC_FLUSH);
+                    count += n;
+                } while (count == output.length);
+            }
+            return Arrays.copyOf(output, count);
+        }
+
+        private byte[] ensureOutput(int count) {
+            if (count == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            return output;
+        }
+
+        void release() {
+            deflater.end();
+        }
+    }
+
+    private static class Worker extends Thread {
+        final Workspace mWorkspace = new Workspace();
+
+        Worker(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                mWorkspace.release();
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private int mCount;
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Worker(runnable, "ParallelZipper-" + (mCount++));
+        }
+    }
+
+    /**
+     * 按zip格式顺序写出：本地文件头、压缩数据、数据描述符，最后写中央目录
+     */
+    private static class ZipWriter {
+        private final OutputStream mOut;
+        private final byte[] mScratch = new byte[46];
+        private final List<CentralRecord> mRecords = new ArrayList<>();
+        private long mOffset;
+        private CentralRecord mCurrent;
+
+        ZipWriter(OutputStream out) {
+            mOut = out;
+        }
+
+        void writeDirectory(Item item) throws IOException {
+            CentralRecord record = new CentralRecord(item, FLAG_UTF8, METHOD_STORED, mOffset);
+            writeLocalHeader(record);
+            mRecords.add(record);
+        }
+
+        void beginFile(Item item) throws IOException {
+            mCurrent = new CentralRecord(item, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, METHOD_DEFLATED, mOffset);
+            writeLocalHeader(mCurrent);
+        }
+
+        void writeChunk(Chunk chunk) throws IOException {
+            mCurrent.crc = Crc32Combine.combine(mCurrent.crc, chunk.crc, chunk.rawLength);
+            mCurrent.compressedSize += chunk.data.length;
+            mCurrent.size += chunk.rawLength;
+            write(chunk.data, chunk.data.length);
+        }
+
+        void endFile() throws IOException {
+            CentralRecord record = mCurrent;
+            int p = 0;
+            p = putInt(p, DATA_DESCRIPTOR_SIG);
+            p = putInt(p, (int) record.crc);
+            p = putInt(p, (int) record.compressedSize);
+            p = putInt(p, (int) record.size);
+            write(mScratch, p);
+            mRecords.add(record);
+            mCurrent = null;
+        }
+
+        void finish() throws IOException {
+            long centralOffset = mOffset;
+            for (CentralRecord record : mRecords) {
+                int p = 0;
+                p = putInt(p, CENTRAL_HEADER_SIG);
+                p = putShort(p, VERSION);
+                p = putShort(p, VERSION);
+                p = putShort(p, record.flags);
+                p = putShort(p, record.method);
+                p = putInt(p, record.dosTime);
+                p = putInt(p, (int) record.crc);
+                p = putInt(p, (int) record.compressedSize);
+                p = putInt(p, (int) record.size);
+                p = putShort(p, record.name.length);
+                p = putShort(p, 0);
+                p = putShort(p, 0);
+                p = putShort(p, 0);
+                p = putShort(p, 0);
+                p = putInt(p, record.method == METHOD_STORED ? DIR_ATTRIBUTE : 0);
+                p = putInt(p, (int) record.localOffset);
+                write(mScratch, p);
+                write(record.name, record.name.length);
+            }
+            long centralSize = mOffset - centralOffset;
+            int p = 0;
+            p = putInt(p, END_SIG);
+            p = putShort(p, 0);
+            p = putShort(p, 0);
+            p = putShort(p, mRecords.size());
+            p = putShort(p, mRecords.size());
+            p = putInt(p, (int) centralSize);
+            p = putInt(p, (int) centralOffset);
+            p = putShort(p, 0);
+            write(mScratch, p);
+            mOut.flush();
+        }
+
+        private void writeLocalHeader(CentralRecord record) throws IOException {
+            int p = 0;
+            p = putInt(p, LOCAL_HEADER_SIG);
+            p = putShort(p, VERSION);
+            p = putShort(p, record.flags);
+            p = putShort(p, record.method);
+            p = putInt(p, record.dosTime);
+            //crc和大小在数据描述符中给出
+            p = putInt(p, 0);
+            p = putInt(p, 0);
+            p = putInt(p, 0);
+            p = putShort(p, record.name.length);
+            p = putShort(p, 0);
+            write(mScratch, p);
+            write(record.name, record.name.length);
+        }
+
+        private void write(byte[] bytes, int length) throws IOException {
+            mOut.write(bytes, 0, length);
+            mOffset += length;
+        }
+
+        private int putShort(int p, int value) {
+            mScratch[p] = (byte) value;
+            mScratch[p + 1] = (byte) (value >>> 8);
+            return p + 2;
+        }
+
+        private int putInt(int p, int value) {
+            mScratch[p] = (byte) value;
+            mScratch[p + 1] = (byte) (value >>> 8);
+            mScratch[p + 2] = (byte) (value >>> 16);
+            mScratch[p + 3] = (byte) (value >>> 24);
+            return p + 4;
+        }
+    }
+
+    private static class CentralRecord {
+        final byte[] name;
+        final int flags;
+        final int method;
+        final int dosTime;
+        final long localOffset;
+        long crc;
+        long compressedSize;
+        long size;
+
+        CentralRecord(Item item, int flags, int method, long localOffset) {
+            this.name = item.name.getBytes(UTF_8);
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = toDosTime(item.lastModified);
+            this.localOffset = localOffset;
+        }
+    }
+
+    private static int toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+}
@@ -0,0 +1,431 @@
+package com.ngb.wyn.common.utils.file;
+
+import com.ngb.wyn.common.utils.FileUtil;
+import com.ngb.wyn.common.utils.LogUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 多线程并行解压
+ * 每个解压线程持有独立的{@link ZipFile}，各条目互不影响地并行解压，通过{@link FileChannel}写入目标文件。
+ * 支持取消、解压总大小上限，结果中记录每个条目的成败，可只对失败的条目调用{@link #unzip(Collection)}重试。
+ * <p>
+ * 同一个实例同一时间只能执行一次解压。
+ */
+public class UnzipEngine {
+
+    private static final String TAG = "UnzipEngine";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File mZip;
+    private final File mDesDir;
+    private int mParallelism = Runtime.getRuntime().availableProcessors();
+    private long mMaxTotalSize = Long.MAX_VALUE;
+    private Listener mListener;
+    private volatile boolean mCancelled;
+
+    public UnzipEngine(File zip, File desDir) {
+        mZip = zip;
+        mDesDir = desDir;
+    }
+
+    /**
+     * @param parallelism 解压线程数，小于1时使用CPU核数
+     */
+    public UnzipEngine setParallelism(int parallelism) {
+        mParallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        return this;
+    }
+
+    /**
+     * @param maxTotalSize 解压后的总大小上限（按实际写入的字节数计算，不信任压缩包中声明的大小）
+     */
+    public UnzipEngine setMaxTotalSize(long maxTotalSize) {
+        mMaxTotalSize = maxTotalSize;
+        return this;
+    }
+
+    /**
+     * @param listener 进度回调，在解压线程中回调
+     */
+    public UnzipEngine setListener(Listener listener) {
+        mListener = listener;
+        return this;
+    }
+
+    /**
+     * 取消解压，正在解压的条目会尽快停止并删除不完整的文件
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * 解压全部条目
+     */
+    public Result unzip() {
+        return unzip(null);
+    }
+
+    /**
+     * 解压指定条目
+     *
+     * @param entryNames 要解压的条目名，为null时解压全部，一般传入上次结果的{@link Result#getFailedEntryNames()}
+     */
+    public Result unzip(Collection<String> entryNames) {
+        mCancelled = false;
+        long startTime = System.nanoTime();
+        List<EntryResult> entryResults = new ArrayList<>();
+        String desPath;
+        List<ZipEntry> fileEntries = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(mZip)) {
+            desPath = mDesDir.getCanonicalPath() + File.separator;
+            Set<String> filter = entryNames == null ? null : new HashSet<>(entryNames);
+            long declaredSize = 0;
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry zipEntry = zipEntries.nextElement();
+                if (filter != null && !filter.contains(zipEntry.getName())) {
+                    continue;
+                }
+                File target = new File(mDesDir, zipEntry.getName());
+                if (!target.getCanonicalPath().startsWith(desPath)) {
+                    entryResults.add(EntryResult.failed(zipEntry.getName(), "illegal entry name"));
+                } else if (zipEntry.isDirectory()) {
+                    boolean success = FileUtil.createFileDir(target);
+                    entryResults.add(success ? new EntryResult(zipEntry.getName(), true, null, 0, 0)
+                            : EntryResult.failed(zipEntry.getName(), "mkdirs failed"));
+                } else {
+                    fileEntries.add(zipEntry);
+                    declaredSize += Math.max(0, zipEntry.getSize());
+                }
+            }
+            if (declaredSize > mMaxTotalSize) {
+                for (ZipEntry zipEntry : fileEntries) {
+                    entryResults.add(EntryResult.failed(zipEntry.getName(), "exceeds max total size"));
+                }
+                return new Result(entryResults, false, null, System.nanoTime() - startTime);
+            }
+        } catch (IOException e) {
+            LogUtil.e(TAG, "unzip, open error:" + e.getMessage());
+            return new Result(entryResults, false, "open zip failed: " + e.getMessage(),
+                    System.nanoTime() - startTime);
+        }
+
+        //大文件先解压，减少最后只剩单个大文件在解压的长尾
+        Collections.sort(fileEntries, new Comparator<ZipEntry>() {
+            @Override
+            public int compare(ZipEntry o1, ZipEntry o2) {
+                long diff = o2.getSize() - o1.getSize();
+                return diff > 0 ? 1 : (diff < 0 ? -1 : 0);
+            }
+        });
+        AtomicLong totalWritten = new AtomicLong();
+        ExecutorService executor = new ThreadPoolExecutor(mParallelism, mParallelism,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new WorkerFactory(mZip));
+        List<Future<EntryResult>> futures = new ArrayList<>(fileEntries.size());
+        try {
+            for (ZipEntry zipEntry : fileEntries) {
+                futures.add(executor.submit(new ExtractTask(zipEntry, new File(mDesDir, zipEntry.getName()), totalWritten)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                entryResults.add(await(futures.get(i), fileEntries.get(i).getName()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(entryResults, mCancelled, null, System.nanoTime() - startTime);
+    }
+
+    private static EntryResult await(Future<EntryResult> future, String name) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EntryResult.failed(name, "interrupted");
+        } catch (ExecutionException e) {
+            return EntryResult.failed(name, String.valueOf(e.getCause()));
+        }
+    }
+
+    private class ExtractTask implements Callable<EntryResult> {
+        private final ZipEntry mEntry;
+        private final File mTarget;
+        private final AtomicLong mTotalWritten;
+
+        ExtractTask(ZipEntry entry, File target, AtomicLong totalWritten) {
+            mEntry = entry;
+            mTarget = target;
+            mTotalWritten = totalWritten;
+        }
+
+        @Override
+        public EntryResult call() {
+            String name = mEntry.getName();
+            if (mCancelled) {
+                return EntryResult.failed(name, "cancelled");
+            }
+            Worker worker = (Worker) Thread.currentThread();
+            long startTime = System.nanoTime();
+            long written = 0;
+            InputStream is = null;
+            FileOutputStream os = null;
+            String error = null;
+            try {
+                File parent = mTarget.getParentFile();
+                if (parent != null && !FileUtil.createFileDir(parent)) {
+                    throw new IOException("mkdirs failed: " + parent);
+                }
+                is = worker.getZipFile().getInputStream(mEntry);
+                os = new FileOutputStream(mTarget);
+                FileChannel channel = os.getChannel();
+                byte[] buffer = worker.mBuffer;
+                ByteBuffer byteBuffer = worker.mByteBuffer;
+                long total = mEntry.getSize();
+                int count;
+                while ((count = is.read(buffer)) != -1) {
+                    if (mCancelled) {
+                        throw new IOException("cancelled");
+                    }
+                    if (mTotalWritten.addAndGet(count) > mMaxTotalSize) {
+                        throw new IOException("exceeds max total size");
+                    }
+                    byteBuffer.clear();
+                    byteBuffer.limit(count);
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer);
+                    }
+                    written += count;
+                    Listener listener = mListener;
+                    if (listener != null) {
+                        listener.onEntryProgress(name, written, total);
+                    }
+                }
+            } catch (IOException e) {
+                error = e.getMessage();
+            } finally {
+                FileUtil.closeSilently(is);
+                FileUtil.closeSilently(os);
+            }
+            if (error != null && mTarget.exists() && !mTarget.delete()) {
+                LogUtil.w(TAG, "delete incomplete file fail: " + mTarget);
+            }
+            EntryResult result = new EntryResult(name, error == null, error, written, System.nanoTime() - startTime);
+            Listener listener = mListener;
+            if (listener != null) {
+                listener.onEntryFinished(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 解压线程，持有独立的ZipFile和读写缓冲区，线程退出时关闭ZipFile
+     */
+    private static class Worker extends Thread {
+        final byte[] mBuffer = new byte[BUFFER_SIZE];
+        final ByteBuffer mByteBuffer = ByteBuffer.wrap(mBuffer);
+        private final File mZip;
+        private ZipFile mZipFile;
+
+        Worker(Runnable runnable, String name, File zip) {
+            super(runnable, name);
+            mZip = zip;
+        }
+
+        ZipFile getZipFile() throws IOException {
+            if (mZipFile == null) {
+                mZipFile = new ZipFile(mZip);
+            }
+            return mZipFile;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                FileUtil.closeSilently(mZipFile);
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final File mZip;
+        private int mCount;
+
+        WorkerFactory(File zip) {
+            mZip = zip;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Worker(runnable, TAG + "-" + (mCount++), mZip);
+        }
+    }
+
+    public interface Listener {
+        /**
+         * @param name    条目名
+         * @param written 已写入字节数
+         * @param total   条目声明的大小，未知时为-1
+         */
+        void onEntryProgress(String name, long written, long total);
+
+        void onEntryFinished(EntryResult result);
+    }
+
+    public static class EntryResult {
+        private final String mName;
+        private final boolean mSuccess;
+        private final String mError;
+        private final long mBytes;
+        private final long mCostNanos;
+
+        EntryResult(String name, boolean success, String error, long bytes, long costNanos) {
+            mName = name;
+            mSuccess = success;
+            mError = error;
+            mBytes = bytes;
+            mCostNanos = costNanos;
+        }
+
+        static EntryResult failed(String name, String error) {
+            return new EntryResult(name, false, error, 0, 0);
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public boolean isSuccess() {
+            return mSuccess;
+        }
+
+        public String getError() {
+            return mError;
+        }
+
+        public long getBytes() {
+            return mBytes;
+        }
+
+        public long getCostNanos() {
+            return mCostNanos;
+        }
+
+        /**
+         * @return 该条目的解压速度，字节/秒
+         */
+        public long getThroughput() {
+            return mCostNanos <= 0 ? 0 : mBytes * TimeUnit.SECONDS.toNanos(1) / mCostNanos;
+        }
+
+        @Override
+        public String toString() {
+            return mName + (mSuccess ? " ok, " + mBytes + " bytes" : " failed, " + mError);
+        }
+    }
+
+    public static class Result {
+        private final List<EntryResult> mEntryResults;
+        private final boolean mCancelled;
+        private final String mError;
+        private final long mCostNanos;
+
+        Result(List<EntryResult> entryResults, boolean cancelled, String error, long costNanos) {
+            mEntryResults = Collections.unmodifiableList(entryResults);
+            mCancelled = cancelled;
+            mError = error;
+            mCostNanos = costNanos;
+        }
+
+        /**
+         * @return 是否全部条目都解压成功
+         */
+        public boolean isSuccess() {
+            if (mCancelled || mError != null) {
+                return false;
+            }
+            for (EntryResult result : mEntryResults) {
+                if (!result.isSuccess()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * @return 压缩包本身的错误，如无法打开、不是zip文件，此时没有任何条目结果，只能整体重试；
+         * 压缩包正常时为null，各条目的错误见{@link EntryResult#getError()}
+         */
+        public String getError() {
+            return mError;
+        }
+
+        public List<EntryResult> getEntryResults() {
+            return mEntryResults;
+        }
+
+        public List<String> getFailedEntryNames() {
+            List<String> names = new ArrayList<>();
+            for (EntryResult result : mEntryResults) {
+                if (!result.isSuccess()) {
+                    names.add(result.getName());
+                }
+            }
+            return names;
+        }
+
+        public long getTotalBytes() {
+            long total = 0;
+            for (EntryResult result : mEntryResults) {
+                total += result.getBytes();
+            }
+            return total;
+        }
+
+        public long getCostNanos() {
+            return mCostNanos;
+        }
+
+        /**
+         * @return 整体解压速度，字节/秒
+         */
+        public long getThroughput() {
+            return mCostNanos <= 0 ? 0 : getTotalBytes() * TimeUnit.SECONDS.toNanos(1) / mCostNanos;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ngb.wyn.common.utils.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * 带缓冲的字符输出，攒满缓冲区后一次性写入目标，避免逐字符调用{@link Appendable#append(char)}
+ */
+final class JsonCharSink {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Appendable mOut;
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mCount;
+
+    JsonCharSink(Appendable out) {
+        mOut = out;
+    }
+
+    void write(char c) throws IOException {
+        if (mCount == mBuffer.length) {
+            flush();
+        }
+        mBuffer[mCount++] = c;
+    }
+
+    void write(char[] chars, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (mCount == mBuffer.length) {
+                flush();
+            }
+            int n = Math.min(length, mBuffer.length - mCount);
+            System.arraycopy(chars, offset, mBuffer, mCount, n);
+            mCount += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    void write(String s) throws IOException {
+        int length = s.length();
+        int offset = 0;
+        while (offset < length) {
+            if (mCount == mBuffer.length) {
+                flush();
+            }
+            int n = Math.min(length - offset, mBuffer.length - mCount);
+            s.getChars(offset, offset + n, mBuffer, mCount);
+            mCount += n;
+            offset += n;
+        }
+    }
+
+    void flush() throws IOException {
+        if (mCount == 0) {
+            return;
+        }
+        if (mOut instanceof Writer) {
+            ((Writer) mOut).write(mBuffer, 0, mCount);
+        } else if (mOut instanceof StringBuilder) {
+            ((StringBuilder) mOut).append(mBuffer, 0, mCount);
+        } else {
+            mOut.append(CharBuffer.wrap(mBuffer, 0, mCount));
+        }
+        mCount = 0;
+    }
+}
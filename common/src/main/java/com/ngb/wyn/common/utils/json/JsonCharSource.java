@@ -0,0 +1,90 @@
+package com.ngb.wyn.common.utils.json;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 带缓冲的字符读取，供流式处理JSON的各个类逐字符读取输入
+ */
+final class JsonCharSource {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader mReader;
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mPos;
+    private int mLimit;
+    private long mOffset;
+
+    JsonCharSource(Reader reader) {
+        mReader = reader;
+    }
+
+    /**
+     * @return 下一个字符，输入结束返回-1
+     */
+    int read() throws IOException {
+        if (mPos == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPos++];
+    }
+
+    /**
+     * @return 下一个字符但不消费，输入结束返回-1
+     */
+    int peek() throws IOException {
+        if (mPos == mLimit && !fill()) {
+            return -1;
+        }
+        return mBuffer[mPos];
+    }
+
+    /**
+     * 跳过空白字符
+     *
+     * @return 下一个非空白字符但不消费，输入结束返回-1
+     */
+    int peekNonWhitespace() throws IOException {
+        while (true) {
+            if (mPos == mLimit && !fill()) {
+                return -1;
+            }
+            char c = mBuffer[mPos];
+            if (!isWhitespace(c)) {
+                return c;
+            }
+            mPos++;
+        }
+    }
+
+    /**
+     * @return 已读取的字符数，用于错误信息中定位
+     */
+    long position() {
+        return mOffset + mPos;
+    }
+
+    void close() throws IOException {
+        mReader.close();
+    }
+
+    private boolean fill() throws IOException {
+        mOffset += mLimit;
+        mPos = 0;
+        mLimit = 0;
+        int count;
+        do {
+            count = mReader.read(mBuffer, 0, mBuffer.length);
+        } while (count == 0);
+        if (count < 0) {
+            return false;
+        }
+        mLimit = count;
+        return true;
+    }
+
+    static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
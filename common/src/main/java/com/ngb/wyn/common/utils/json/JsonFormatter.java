@@ -0,0 +1,99 @@
+package com.ngb.wyn.common.utils.json;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 单遍流式JSON格式化
+ * 由{@link JsonScanner}逐个读取记号，根据括号、逗号、冒号调整换行和缩进，双引号字符串、数字等原样输出，不构建JSONObject/JSONArray，
+ * 耗时与输入长度线性相关，与嵌套深度无关。
+ * 检查括号是否匹配、字符串是否闭合、值之间是否有分隔符，但不校验数字、字面量等的合法性；
+ * 单引号字符串和不加引号的键按org.json的宽松规则接受，输出为双引号字符串。
+ */
+public final class JsonFormatter {
+
+    private final JsonScanner mScanner;
+    private final JsonCharSink mSink;
+    private final int mIndentSpaces;
+    private char[] mIndentBuffer;
+    private int mDepth;
+
+    private JsonFormatter(Reader reader, Appendable out, int indentSpaces) {
+        mScanner = new JsonScanner(reader);
+        mSink = new JsonCharSink(out);
+        mIndentSpaces = indentSpaces;
+        mIndentBuffer = new char[indentSpaces * 8];
+        Arrays.fill(mIndentBuffer, ' ');
+    }
+
+    /**
+     * 格式化JSON并写入out，reader不会被关闭
+     *
+     * @param reader       JSON输入，根节点必须为对象或数组
+     * @param out          格式化结果输出
+     * @param indentSpaces 每层缩进的空格数，小于0时为4
+     * @throws JSONException 根节点不是对象或数组、括号不匹配、字符串未闭合、值之间缺少分隔符
+     * @throws IOException   读写失败
+     */
+    public static void format(Reader reader, Appendable out, int indentSpaces) throws JSONException, IOException {
+        new JsonFormatter(reader, out, indentSpaces < 0 ? 4 : indentSpaces).format();
+    }
+
+    private void format() throws JSONException, IOException {
+        //刚写出左括号，换行推迟到下一个记号，以便空对象/空数组输出为{}、[]
+        boolean justOpened = false;
+        boolean afterName = false;
+        int token;
+        while ((token = mScanner.next()) != JsonScanner.END_DOCUMENT) {
+            if (token == JsonScanner.END_OBJECT || token == JsonScanner.END_ARRAY) {
+                mDepth--;
+                if (!justOpened) {
+                    newLine(mDepth);
+                }
+                mSink.write(token == JsonScanner.END_OBJECT ? '}' : ']');
+                justOpened = false;
+                continue;
+            }
+            //键或数组元素的开头：第一个只换行，其余先补上逗号
+            if (afterName) {
+                mSink.write(':');
+                mSink.write(' ');
+            } else if (mDepth > 0) {
+                if (!justOpened) {
+                    mSink.write(',');
+                }
+                newLine(mDepth);
+            }
+            justOpened = false;
+            afterName = token == JsonScanner.NAME;
+            switch (token) {
+                case JsonScanner.BEGIN_OBJECT:
+                case JsonScanner.BEGIN_ARRAY:
+                    mSink.write(token == JsonScanner.BEGIN_OBJECT ? '{' : '[');
+                    mDepth++;
+                    justOpened = true;
+                    break;
+                case JsonScanner.LITERAL:
+                    mScanner.copyLiteral(mSink);
+                    break;
+                default:
+                    mScanner.copyString(mSink);
+                    break;
+            }
+        }
+        mSink.flush();
+    }
+
+    private void newLine(int level) throws IOException {
+        mSink.write('\n');
+        int count = level * mIndentSpaces;
+        if (count > mIndentBuffer.length) {
+            mIndentBuffer = new char[count * 2];
+            Arrays.fill(mIndentBuffer, ' ');
+        }
+        mSink.write(mIndentBuffer, 0, count);
+    }
+}
@@ -0,0 +1,90 @@
+package com.ngb.wyn.common.utils.json;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URLEncoder;
+
+/**
+ * 单遍流式JSON压缩
+ * 由{@link JsonScanner}逐个读取记号，去掉字符串以外的空白字符，可选对字符串类型的值做URL编码（键不编码），不构建JSONObject/JSONArray，
+ * 输入输出都是流，超大的JSON也不需要整体放入内存。
+ * 检查括号是否匹配、字符串是否闭合、值之间是否有分隔符，但不校验数字、字面量等的合法性；
+ * 单引号字符串和不加引号的键按org.json的宽松规则接受，输出为双引号字符串。
+ */
+public final class JsonMinifier {
+
+    private static final String CHARSET = "UTF-8";
+
+    private final JsonScanner mScanner;
+    private final JsonCharSink mSink;
+    private final boolean mIsEncode;
+
+    private JsonMinifier(Reader reader, Appendable out, boolean isEncode) {
+        mScanner = new JsonScanner(reader);
+        mSink = new JsonCharSink(out);
+        mIsEncode = isEncode;
+    }
+
+    /**
+     * 压缩JSON并写入out，reader不会被关闭
+     *
+     * @param reader   JSON输入，根节点必须为对象或数组
+     * @param out      压缩结果输出
+     * @param isEncode 是否对字符串类型的值做URL编码
+     * @throws JSONException 根节点不是对象或数组、括号不匹配、字符串未闭合、值之间缺少分隔符
+     * @throws IOException   读写失败
+     */
+    public static void minify(Reader reader, Appendable out, boolean isEncode) throws JSONException, IOException {
+        new JsonMinifier(reader, out, isEncode).minify();
+    }
+
+    private void minify() throws JSONException, IOException {
+        boolean justOpened = true;
+        boolean afterName = false;
+        int token;
+        while ((token = mScanner.next()) != JsonScanner.END_DOCUMENT) {
+            switch (token) {
+                case JsonScanner.END_OBJECT:
+                case JsonScanner.END_ARRAY:
+                    mSink.write(token == JsonScanner.END_OBJECT ? '}' : ']');
+                    justOpened = false;
+                    continue;
+                default:
+                    break;
+            }
+            if (afterName) {
+                mSink.write(':');
+            } else if (!justOpened) {
+                mSink.write(',');
+            }
+            justOpened = false;
+            afterName = token == JsonScanner.NAME;
+            switch (token) {
+                case JsonScanner.BEGIN_OBJECT:
+                case JsonScanner.BEGIN_ARRAY:
+                    mSink.write(token == JsonScanner.BEGIN_OBJECT ? '{' : '[');
+                    justOpened = true;
+                    break;
+                case JsonScanner.LITERAL:
+                    mScanner.copyLiteral(mSink);
+                    break;
+                case JsonScanner.STRING:
+                    if (mIsEncode) {
+                        //还原转义字符后再编码，编码结果只含字母数字和%+.-*_，无需再转义
+                        mSink.write('"');
+                        mSink.write(URLEncoder.encode(mScanner.readString(), CHARSET));
+                        mSink.write('"');
+                        break;
+                    }
+                    mScanner.copyString(mSink);
+                    break;
+                default:
+                    mScanner.copyString(mSink);
+                    break;
+            }
+        }
+        mSink.flush();
+    }
+}
@@ -0,0 +1,598 @@
+package com.ngb.wyn.common.utils.json;
+
+import org.json.JSONException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * 拉取式流式JSON读取
+ * 调用方按文档结构依次调用beginObject/nextName/nextFloat/endObject等方法读取，整个文档不会被加载为字符串或JSONObject；
+ * 数字直接从字符缓冲区解析为基本类型，不装箱，常见的短数字也不创建String；
+ * {@link #skipValue()}跳过不关心的子树时只扫描字符，不创建任何对象。
+ * <p>
+ * 非线程安全。
+ */
+public class JsonPullReader implements Closeable {
+
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private static final int SCOPE_EMPTY_ARRAY = 1;
+    private static final int SCOPE_NONEMPTY_ARRAY = 2;
+    private static final int SCOPE_EMPTY_OBJECT = 3;
+    private static final int SCOPE_DANGLING_NAME = 4;
+    private static final int SCOPE_NONEMPTY_OBJECT = 5;
+    private static final int SCOPE_EMPTY_DOCUMENT = 6;
+    private static final int SCOPE_NONEMPTY_DOCUMENT = 7;
+
+    private static final int MAX_FAST_DIGITS = 18;
+    //2^53，小于它的整数可以被double精确表示
+    private static final long DOUBLE_EXACT_LIMIT = 1L << 53;
+    //2^24，小于它的整数可以被float精确表示
+    private static final long FLOAT_EXACT_LIMIT = 1L << 24;
+    private static final double[] DOUBLE_POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POW10 = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final JsonCharSource mSource;
+    private final StringBuilder mStringBuilder = new StringBuilder();
+    private char[] mNumber = new char[32];
+    private int mNumberLength;
+    private int[] mStack = new int[32];
+    private int mStackSize;
+    private Token mPeeked;
+    private boolean mNegative;
+    private long mMantissa;
+    private int mExponent;
+
+    public JsonPullReader(Reader reader) {
+        mSource = new JsonCharSource(reader);
+        mStack[mStackSize++] = SCOPE_EMPTY_DOCUMENT;
+    }
+
+    public static JsonPullReader of(String json) {
+        return new JsonPullReader(new StringReader(json));
+    }
+
+    /**
+     * @param buffer UTF-8编码的JSON，从position读到limit，如{@link com.ngb.wyn.common.utils.FileUtil#mapFile(String)}的结果；
+     *               读取的是buffer的slice，不会改变buffer的position
+     */
+    public static JsonPullReader of(ByteBuffer buffer) {
+        return new JsonPullReader(new ByteBufferReader(buffer));
+    }
+
+    /**
+     * @return 下一个token的类型，不消费
+     */
+    public Token peek() throws JSONException, IOException {
+        if (mPeeked == null) {
+            mPeeked = doPeek();
+        }
+        return mPeeked;
+    }
+
+    public void beginObject() throws JSONException, IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+    }
+
+    public void endObject() throws JSONException, IOException {
+        expect(Token.END_OBJECT);
+        mStackSize--;
+    }
+
+    public void beginArray() throws JSONException, IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+    }
+
+    public void endArray() throws JSONException, IOException {
+        expect(Token.END_ARRAY);
+        mStackSize--;
+    }
+
+    /**
+     * @return 当前对象或数组中是否还有元素
+     */
+    public boolean hasNext() throws JSONException, IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() throws JSONException, IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * @return 字符串值，当前值为数字时返回数字的原文
+     */
+    public String nextString() throws JSONException, IOException {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            mPeeked = null;
+            readNumber();
+            return new String(mNumber, 0, mNumberLength);
+        }
+        expect(Token.STRING);
+        return readString();
+    }
+
+    public boolean nextBoolean() throws JSONException, IOException {
+        expect(Token.BOOLEAN);
+        if (mSource.peek() == 't') {
+            readLiteral("true");
+            return true;
+        }
+        readLiteral("false");
+        return false;
+    }
+
+    public void nextNull() throws JSONException, IOException {
+        expect(Token.NULL);
+        readLiteral("null");
+    }
+
+    public int nextInt() throws JSONException, IOException {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw syntaxError("Expected an int but was " + value);
+        }
+        return (int) value;
+    }
+
+    public long nextLong() throws JSONException, IOException {
+        expect(Token.NUMBER);
+        readNumber();
+        int i = 0;
+        boolean negative = mNumber[0] == '-';
+        if (negative) {
+            i++;
+        }
+        if (mNumberLength - i <= MAX_FAST_DIGITS) {
+            long value = 0;
+            for (; i < mNumberLength; i++) {
+                char c = mNumber[i];
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == mNumberLength) {
+                return negative ? -value : value;
+            }
+        }
+        //小数、指数或超长的整数，不经过double，避免超出long范围的值被截断为Long.MAX_VALUE
+        String text = new String(mNumber, 0, mNumberLength);
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            try {
+                return new BigDecimal(text).longValueExact();
+            } catch (ArithmeticException | NumberFormatException notLong) {
+                throw syntaxError("Expected a long but was " + text);
+            }
+        }
+    }
+
+    public double nextDouble() throws JSONException, IOException {
+        expect(Token.NUMBER);
+        readNumber();
+        if (parseDecimal() && mMantissa < DOUBLE_EXACT_LIMIT
+                && mExponent >= -22 && mExponent <= 22) {
+            //Clinger快速路径：尾数和10的幂都能被精确表示，一次乘/除的结果即为正确舍入值
+            double value = mExponent >= 0 ? mMantissa * DOUBLE_POW10[mExponent]
+                    : mMantissa / DOUBLE_POW10[-mExponent];
+            return mNegative ? -value : value;
+        }
+        return Double.parseDouble(new String(mNumber, 0, mNumberLength));
+    }
+
+    public float nextFloat() throws JSONException, IOException {
+        expect(Token.NUMBER);
+        readNumber();
+        if (parseDecimal() && mMantissa < FLOAT_EXACT_LIMIT
+                && mExponent >= -10 && mExponent <= 10) {
+            float value = mExponent >= 0 ? mMantissa * FLOAT_POW10[mExponent]
+                    : mMantissa / FLOAT_POW10[-mExponent];
+            return mNegative ? -value : value;
+        }
+        return Float.parseFloat(new String(mNumber, 0, mNumberLength));
+    }
+
+    /**
+     * 跳过下一个值，为对象或数组时跳过整棵子树，只扫描字符，不创建对象
+     */
+    public void skipValue() throws JSONException, IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    mPeeked = null;
+                    skipString();
+                    break;
+                case NUMBER:
+                    mPeeked = null;
+                    readNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw syntaxError("Unexpected end of document");
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mSource.close();
+    }
+
+    private Token doPeek() throws JSONException, IOException {
+        int scope = mStack[mStackSize - 1];
+        switch (scope) {
+            case SCOPE_EMPTY_ARRAY:
+                mStack[mStackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+                if (mSource.peekNonWhitespace() == ']') {
+                    mSource.read();
+                    return Token.END_ARRAY;
+                }
+                break;
+            case SCOPE_NONEMPTY_ARRAY: {
+                int c = readNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+                break;
+            }
+            case SCOPE_EMPTY_OBJECT:
+            case SCOPE_NONEMPTY_OBJECT: {
+                mStack[mStackSize - 1] = SCOPE_DANGLING_NAME;
+                int c = readNonWhitespace();
+                if (scope == SCOPE_NONEMPTY_OBJECT) {
+                    if (c == '}') {
+                        return Token.END_OBJECT;
+                    } else if (c != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                    c = readNonWhitespace();
+                } else if (c == '}') {
+                    return Token.END_OBJECT;
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected name");
+                }
+                return Token.NAME;
+            }
+            case SCOPE_DANGLING_NAME:
+                mStack[mStackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+                if (readNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+            case SCOPE_EMPTY_DOCUMENT:
+                mStack[mStackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (mSource.peekNonWhitespace() != -1) {
+                    throw syntaxError("Unexpected content after root value");
+                }
+                return Token.END_DOCUMENT;
+        }
+        int c = mSource.peekNonWhitespace();
+        switch (c) {
+            case '{':
+                mSource.read();
+                return Token.BEGIN_OBJECT;
+            case '[':
+                mSource.read();
+                return Token.BEGIN_ARRAY;
+            case '"':
+                mSource.read();
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void expect(Token expected) throws JSONException, IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        mPeeked = null;
+    }
+
+    private void push(int scope) {
+        if (mStackSize == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mStackSize * 2);
+        }
+        mStack[mStackSize++] = scope;
+    }
+
+    private int readNonWhitespace() throws IOException {
+        mSource.peekNonWhitespace();
+        return mSource.read();
+    }
+
+    /**
+     * 读取字符串内容，开头的引号已被消费
+     */
+    private String readString() throws JSONException, IOException {
+        StringBuilder builder = mStringBuilder;
+        builder.setLength(0);
+        int c;
+        while ((c = mSource.read()) != -1) {
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c == '\\') {
+                builder.append(readEscape());
+            } else {
+                builder.append((char) c);
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void skipString() throws JSONException, IOException {
+        int c;
+        while ((c = mSource.read()) != -1) {
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private char readEscape() throws JSONException, IOException {
+        int escaped = mSource.read();
+        switch (escaped) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) escaped;
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(mSource.read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private void readLiteral(String literal) throws JSONException, IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (mSource.read() != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+    }
+
+    /**
+     * 把数字的字符读入mNumber，并校验格式：-?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+     */
+    private void readNumber() throws JSONException, IOException {
+        mNumberLength = 0;
+        int c = mSource.peek();
+        if (c == '-') {
+            appendNumber(mSource.read());
+            c = mSource.peek();
+        }
+        if (c == '0') {
+            appendNumber(mSource.read());
+        } else if (readDigits() == 0) {
+            throw syntaxError("Invalid number");
+        }
+        if (mSource.peek() == '.') {
+            appendNumber(mSource.read());
+            if (readDigits() == 0) {
+                throw syntaxError("Invalid number");
+            }
+        }
+        c = mSource.peek();
+        if (c == 'e' || c == 'E') {
+            appendNumber(mSource.read());
+            c = mSource.peek();
+            if (c == '+' || c == '-') {
+                appendNumber(mSource.read());
+            }
+            if (readDigits() == 0) {
+                throw syntaxError("Invalid number");
+            }
+        }
+    }
+
+    private int readDigits() throws IOException {
+        int count = 0;
+        int c;
+        while ((c = mSource.peek()) >= '0' && c <= '9') {
+            appendNumber(mSource.read());
+            count++;
+        }
+        return count;
+    }
+
+    private void appendNumber(int c) {
+        if (mNumberLength == mNumber.length) {
+            mNumber = Arrays.copyOf(mNumber, mNumberLength * 2);
+        }
+        mNumber[mNumberLength++] = (char) c;
+    }
+
+    /**
+     * 把mNumber拆成符号、十进制尾数和指数，有效数字过多或指数过大时返回false，交给标准库解析
+     */
+    private boolean parseDecimal() {
+        char[] number = mNumber;
+        int length = mNumberLength;
+        int i = 0;
+        mNegative = number[0] == '-';
+        if (mNegative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < length; i++) {
+            char c = number[i];
+            if (c == '.') {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                break;
+            } else {
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > MAX_FAST_DIGITS) {
+                        return false;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                if (fraction) {
+                    exponent--;
+                }
+            }
+        }
+        if (i < length) {
+            i++;
+            boolean negativeExponent = false;
+            if (number[i] == '+' || number[i] == '-') {
+                negativeExponent = number[i] == '-';
+                i++;
+            }
+            int value = 0;
+            for (; i < length; i++) {
+                value = value * 10 + (number[i] - '0');
+                if (value > 1000) {
+                    return false;
+                }
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        mMantissa = mantissa;
+        mExponent = exponent;
+        return true;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + mSource.position());
+    }
+
+    /**
+     * 按UTF-8把ByteBuffer解码为字符流，不复制整个缓冲区
+     */
+    private static class ByteBufferReader extends Reader {
+        private final ByteBuffer mBuffer;
+        private final CharsetDecoder mDecoder = Charset.forName("UTF-8").newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private boolean mDone;
+
+        ByteBufferReader(ByteBuffer buffer) {
+            mBuffer = buffer.slice();
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) throws IOException {
+            if (mDone) {
+                return -1;
+            }
+            CharBuffer out = CharBuffer.wrap(chars, offset, length);
+            if (mBuffer.hasRemaining()) {
+                CoderResult result = mDecoder.decode(mBuffer, out, true);
+                if (result.isError()) {
+                    throw new CharacterCodingException();
+                }
+            }
+            if (!mBuffer.hasRemaining() && mDecoder.flush(out).isUnderflow()) {
+                mDone = true;
+            }
+            int count = out.position() - offset;
+            return count == 0 && mDone ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.ngb.wyn.common.utils.json;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 流式JSON词法扫描，供{@link JsonFormatter}、{@link JsonMinifier}共用
+ * 按对象、数组的结构检查键、冒号、逗号的位置，相邻的两个值之间缺少分隔符时抛出异常；
+ * 与org.json一样接受单引号字符串和不加引号的键、值，不加引号的内容原样输出，不校验数字、字面量是否合法。
+ * 扫描到{@link #NAME}、{@link #STRING}、{@link #LITERAL}时内容尚未读取，调用方须先用
+ * {@link #copyString(JsonCharSink)}、{@link #readString()}或{@link #copyLiteral(JsonCharSink)}读取，再调用{@link #next()}。
+ */
+final class JsonScanner {
+
+    static final String UNSUPPORTED_TYPE = "Unsupported json type, only for JSONArray or JSONObject.";
+
+    static final int BEGIN_OBJECT = 1;
+    static final int END_OBJECT = 2;
+    static final int BEGIN_ARRAY = 3;
+    static final int END_ARRAY = 4;
+    /**
+     * 对象的键，可能带单引号、双引号或不加引号
+     */
+    static final int NAME = 5;
+    /**
+     * 带引号的字符串值
+     */
+    static final int STRING = 6;
+    /**
+     * 不加引号的值：数字、true/false/null或org.json宽松写法中的其他文本
+     */
+    static final int LITERAL = 7;
+    static final int END_DOCUMENT = 8;
+
+    private static final int STATE_ROOT = 0;
+    private static final int STATE_KEY_OR_END = 1;
+    private static final int STATE_KEY = 2;
+    private static final int STATE_COLON = 3;
+    private static final int STATE_VALUE_OR_END = 4;
+    private static final int STATE_VALUE = 5;
+    private static final int STATE_AFTER_VALUE = 6;
+    private static final int STATE_DONE = 7;
+
+    private final JsonCharSource mSource;
+    private char[] mStack = new char[32];
+    private int mDepth;
+    private int mState = STATE_ROOT;
+    // 当前字符串的引号，0表示不加引号；不加引号时mPendingChar是已读取的第一个字符
+    private int mQuote;
+    private int mPendingChar;
+    private StringBuilder mStringBuilder;
+
+    JsonScanner(Reader reader) {
+        mSource = new JsonCharSource(reader);
+    }
+
+    /**
+     * @return 下一个记号，逗号和冒号只做检查，不作为记号返回
+     * @throws JSONException 根节点不是对象或数组、缺少分隔符、括号不匹配、根节点后还有内容
+     */
+    int next() throws JSONException, IOException {
+        while (true) {
+            int c = readNonWhitespace();
+            switch (mState) {
+                case STATE_ROOT:
+                    if (c != '{' && c != '[') {
+                        throw new JSONException(UNSUPPORTED_TYPE);
+                    }
+                    return begin(c);
+                case STATE_DONE:
+                    if (c != -1) {
+                        throw syntaxError("Unexpected content after root value");
+                    }
+                    return END_DOCUMENT;
+                case STATE_KEY_OR_END:
+                    if (c == '}') {
+                        return end(c);
+                    }
+                    return name(c);
+                case STATE_KEY:
+                    return name(c);
+                case STATE_COLON:
+                    if (c != ':') {
+                        throw syntaxError(c == -1 ? "Unterminated object" : "Expected ':'");
+                    }
+                    mState = STATE_VALUE;
+                    continue;
+                case STATE_VALUE_OR_END:
+                    if (c == ']') {
+                        return end(c);
+                    }
+                    return value(c);
+                case STATE_VALUE:
+                    return value(c);
+                default:
+                    if (c == ',') {
+                        mState = mStack[mDepth - 1] == '{' ? STATE_KEY : STATE_VALUE;
+                        continue;
+                    }
+                    if (c == '}' || c == ']') {
+                        return end(c);
+                    }
+                    throw syntaxError(c == -1 ? unterminated() : "Expected ',' or '" + closing() + "'");
+            }
+        }
+    }
+
+    /**
+     * 以双引号字符串输出当前的键或字符串值，双引号字符串原样输出，单引号字符串和不加引号的键转换为双引号字符串
+     */
+    void copyString(JsonCharSink sink) throws JSONException, IOException {
+        sink.write('"');
+        if (mQuote == 0) {
+            int c = mPendingChar;
+            while (true) {
+                if (c == '"' || c == '\\') {
+                    sink.write('\\');
+                }
+                sink.write((char) c);
+                if (isLiteralEnd(mSource.peek())) {
+                    break;
+                }
+                c = mSource.read();
+            }
+            sink.write('"');
+            return;
+        }
+        int c;
+        while ((c = mSource.read()) != -1) {
+            if (c == mQuote) {
+                sink.write('"');
+                return;
+            }
+            if (c == '\\') {
+                int escaped = mSource.read();
+                if (escaped == -1) {
+                    break;
+                }
+                //单引号字符串里的\'在双引号字符串中不需要转义
+                if (escaped != '\'') {
+                    sink.write('\\');
+                }
+                sink.write((char) escaped);
+            } else {
+                if (c == '"') {
+                    sink.write('\\');
+                }
+                sink.write((char) c);
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * @return 当前键或字符串值还原转义后的内容
+     */
+    String readString() throws JSONException, IOException {
+        StringBuilder builder = mStringBuilder;
+        if (builder == null) {
+            builder = mStringBuilder = new StringBuilder();
+        }
+        builder.setLength(0);
+        if (mQuote == 0) {
+            builder.append((char) mPendingChar);
+            while (!isLiteralEnd(mSource.peek())) {
+                builder.append((char) mSource.read());
+            }
+            return builder.toString();
+        }
+        int c;
+        while ((c = mSource.read()) != -1) {
+            if (c == mQuote) {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append((char) c);
+                continue;
+            }
+            int escaped = mSource.read();
+            switch (escaped) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(readUnicode());
+                    break;
+                case '"':
+                case '\'':
+                case '\\':
+                case '/':
+                    builder.append((char) escaped);
+                    break;
+                default:
+                    throw syntaxError("Invalid escape sequence");
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * 原样输出不加引号的值
+     */
+    void copyLiteral(JsonCharSink sink) throws IOException {
+        sink.write((char) mPendingChar);
+        while (!isLiteralEnd(mSource.peek())) {
+            sink.write((char) mSource.read());
+        }
+    }
+
+    private int begin(int c) {
+        if (mDepth == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mDepth * 2);
+        }
+        mStack[mDepth++] = (char) c;
+        if (c == '{') {
+            mState = STATE_KEY_OR_END;
+            return BEGIN_OBJECT;
+        }
+        mState = STATE_VALUE_OR_END;
+        return BEGIN_ARRAY;
+    }
+
+    private int end(int c) throws JSONException {
+        char expected = c == '}' ? '{' : '[';
+        if (mStack[mDepth - 1] != expected) {
+            throw syntaxError("Unexpected " + (char) c);
+        }
+        mDepth--;
+        mState = mDepth == 0 ? STATE_DONE : STATE_AFTER_VALUE;
+        return c == '}' ? END_OBJECT : END_ARRAY;
+    }
+
+    private int name(int c) throws JSONException {
+        if (c == -1) {
+            throw syntaxError("Unterminated object");
+        }
+        if (!startString(c)) {
+            throw syntaxError("Expected a key");
+        }
+        mState = STATE_COLON;
+        return NAME;
+    }
+
+    private int value(int c) throws JSONException {
+        if (c == -1) {
+            throw syntaxError(unterminated());
+        }
+        if (c == '{' || c == '[') {
+            return begin(c);
+        }
+        if (!startString(c)) {
+            throw syntaxError("Unexpected " + (char) c);
+        }
+        mState = STATE_AFTER_VALUE;
+        return mQuote == 0 ? LITERAL : STRING;
+    }
+
+    /**
+     * @return c能否作为字符串或不加引号内容的开头
+     */
+    private boolean startString(int c) {
+        if (c == '"' || c == '\'') {
+            mQuote = c;
+            return true;
+        }
+        if (isLiteralEnd(c)) {
+            return false;
+        }
+        mQuote = 0;
+        mPendingChar = c;
+        return true;
+    }
+
+    private static boolean isLiteralEnd(int c) {
+        switch (c) {
+            case -1:
+            case ',':
+            case ':':
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case '"':
+            case '\'':
+                return true;
+            default:
+                return JsonCharSource.isWhitespace(c);
+        }
+    }
+
+    private char readUnicode() throws JSONException, IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(mSource.read(), 16);
+            if (digit < 0) {
+                throw syntaxError("Invalid unicode escape");
+            }
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    private int readNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = mSource.read();
+        } while (JsonCharSource.isWhitespace(c));
+        return c;
+    }
+
+    private String unterminated() {
+        return "Unterminated " + (mStack[mDepth - 1] == '{' ? "object" : "array");
+    }
+
+    private char closing() {
+        return mStack[mDepth - 1] == '{' ? '}' : ']';
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + mSource.position());
+    }
+}
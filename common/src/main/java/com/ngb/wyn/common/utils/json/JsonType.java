@@ -0,0 +1,21 @@
+package com.ngb.wyn.common.utils.json;
+
+/**
+ * JSON值的类型，由{@link JsonValidator#sniff(CharSequence)}根据第一个有效字符判断
+ */
+public enum JsonType {
+    OBJECT,
+    ARRAY,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    /**
+     * 没有有效字符（空串或全是空白）
+     */
+    EMPTY,
+    /**
+     * 第一个有效字符不属于任何JSON值，如未加引号的字符串
+     */
+    UNKNOWN
+}
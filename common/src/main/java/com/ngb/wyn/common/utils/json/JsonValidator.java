@@ -0,0 +1,255 @@
+package com.ngb.wyn.common.utils.json;
+
+import java.util.Arrays;
+
+/**
+ * 轻量JSON校验，不构建JSONObject/JSONArray，也不打印日志，适合在循环中频繁调用
+ * {@link #isValid(CharSequence)}用状态机按RFC 8259严格校验整段文本（不接受未加引号的键、尾随内容等宽松写法）；
+ * {@link #sniff(CharSequence)}只看第一个有效字符判断类型，不校验后续内容。
+ */
+public final class JsonValidator {
+
+    private static final int STATE_VALUE = 0;
+    private static final int STATE_KEY = 1;
+    private static final int STATE_AFTER_VALUE = 2;
+
+    private JsonValidator() {
+    }
+
+    /**
+     * 根据第一个有效字符判断JSON值的类型，不校验后续内容
+     *
+     * @param text 文本
+     * @return 类型，null或全是空白返回{@link JsonType#EMPTY}
+     */
+    public static JsonType sniff(CharSequence text) {
+        if (text == null) {
+            return JsonType.EMPTY;
+        }
+        int i = skipWhitespace(text, 0);
+        if (i == text.length()) {
+            return JsonType.EMPTY;
+        }
+        char c = text.charAt(i);
+        switch (c) {
+            case '{':
+                return JsonType.OBJECT;
+            case '[':
+                return JsonType.ARRAY;
+            case '"':
+                return JsonType.STRING;
+            case 't':
+            case 'f':
+                return JsonType.BOOLEAN;
+            case 'n':
+                return JsonType.NULL;
+            default:
+                return c == '-' || (c >= '0' && c <= '9') ? JsonType.NUMBER : JsonType.UNKNOWN;
+        }
+    }
+
+    /**
+     * @param text 文本
+     * @return 是否为合法的JSON值（对象、数组、字符串、数字、true/false/null）
+     */
+    public static boolean isValid(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+        int length = text.length();
+        char[] stack = null;
+        int depth = 0;
+        int state = STATE_VALUE;
+        int i = 0;
+        while (true) {
+            i = skipWhitespace(text, i);
+            if (state == STATE_AFTER_VALUE) {
+                if (depth == 0) {
+                    return i == length;
+                }
+                if (i == length) {
+                    return false;
+                }
+                char c = text.charAt(i++);
+                char top = stack[depth - 1];
+                if (c == ',') {
+                    state = top == '{' ? STATE_KEY : STATE_VALUE;
+                } else if ((c == '}' && top == '{') || (c == ']' && top == '[')) {
+                    depth--;
+                } else {
+                    return false;
+                }
+                continue;
+            }
+            if (i == length) {
+                return false;
+            }
+            char c = text.charAt(i);
+            if (state == STATE_KEY) {
+                if (c != '"') {
+                    return false;
+                }
+                i = skipWhitespace(text, scanString(text, i));
+                if (i < 0 || i == length || text.charAt(i) != ':') {
+                    return false;
+                }
+                i++;
+                state = STATE_VALUE;
+                continue;
+            }
+            switch (c) {
+                case '{':
+                case '[':
+                    if (stack == null) {
+                        stack = new char[16];
+                    } else if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = c;
+                    i = skipWhitespace(text, i + 1);
+                    if (i < length && text.charAt(i) == (c == '{' ? '}' : ']')) {
+                        depth--;
+                        i++;
+                        state = STATE_AFTER_VALUE;
+                    } else {
+                        state = c == '{' ? STATE_KEY : STATE_VALUE;
+                    }
+                    continue;
+                case '"':
+                    i = scanString(text, i);
+                    break;
+                case 't':
+                    i = scanLiteral(text, i, "true");
+                    break;
+                case 'f':
+                    i = scanLiteral(text, i, "false");
+                    break;
+                case 'n':
+                    i = scanLiteral(text, i, "null");
+                    break;
+                default:
+                    i = scanNumber(text, i);
+                    break;
+            }
+            if (i < 0) {
+                return false;
+            }
+            state = STATE_AFTER_VALUE;
+        }
+    }
+
+    /**
+     * @return 字符串结束引号之后的位置，不合法返回-1
+     */
+    private static int scanString(CharSequence text, int i) {
+        int length = text.length();
+        i++;
+        while (i < length) {
+            char c = text.charAt(i++);
+            if (c == '"') {
+                return i;
+            }
+            if (c < 0x20) {
+                return -1;
+            }
+            if (c == '\\') {
+                if (i == length) {
+                    return -1;
+                }
+                char escaped = text.charAt(i++);
+                if (escaped == 'u') {
+                    if (i + 4 > length) {
+                        return -1;
+                    }
+                    for (int end = i + 4; i < end; i++) {
+                        if (Character.digit(text.charAt(i), 16) < 0) {
+                            return -1;
+                        }
+                    }
+                } else if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 数字：-?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+     *
+     * @return 数字之后的位置，不合法返回-1
+     */
+    private static int scanNumber(CharSequence text, int i) {
+        int length = text.length();
+        if (i < length && text.charAt(i) == '-') {
+            i++;
+        }
+        if (i == length) {
+            return -1;
+        }
+        if (text.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return -1;
+            }
+        }
+        if (i < length && text.charAt(i) == '.') {
+            int start = ++i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return -1;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    private static int scanLiteral(CharSequence text, int i, String literal) {
+        int end = i + literal.length();
+        if (end > text.length()) {
+            return -1;
+        }
+        for (int j = 0; i < end; i++, j++) {
+            if (text.charAt(i) != literal.charAt(j)) {
+                return -1;
+            }
+        }
+        return i;
+    }
+
+    private static int skipDigits(CharSequence text, int i) {
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(CharSequence text, int i) {
+        if (i < 0) {
+            return i;
+        }
+        int length = text.length();
+        while (i < length && JsonCharSource.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,35 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+/**
+ * How {@link LiveData#postValue(Object)} handles values that arrive faster than the main thread
+ * dispatches them. {@link LiveData#setValue(Object)} is not affected, it always dispatches
+ * synchronously.
+ */
+public enum Backpressure {
+
+    /**
+     * Keep only the latest pending value, dispatched with the next main thread message.
+     * Replaced values are counted by {@link LiveData#getCoalescedCount()}. This is the default.
+     */
+    LATEST,
+
+    /**
+     * Keep only the latest pending value, dispatched at the start of the next frame, so that a
+     * burst within one frame results in a single dispatch.
+     * Replaced values are counted by {@link LiveData#getCoalescedCount()}.
+     */
+    LATEST_PER_FRAME,
+
+    /**
+     * Keep up to {@code capacity} pending values and dispatch all of them in order; when the
+     * buffer is full the oldest pending value is dropped and counted by
+     * {@link LiveData#getDroppedCount()}.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Dispatch every posted value in order. Values are queued in an unbounded lock-free queue, so
+     * the producer must not outpace the main thread for long.
+     */
+    DELIVER_ALL
+}
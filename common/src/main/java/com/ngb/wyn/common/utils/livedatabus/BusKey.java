@@ -0,0 +1,86 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed channel key for {@link LiveDataBus#with(BusKey)}, meant to be declared once as a
+ * constant:
+ * <pre>
+ * public static final BusKey&lt;String&gt; LOGIN_USER = BusKey.of("login_user", String.class);
+ * </pre>
+ * Keys are interned: declaring the same name twice returns the same instance. Each key owns a
+ * slot index, so looking the channel up again is an array read instead of hashing the name. A
+ * key shares its channel with {@link LiveDataBus#with(String, Class)} for the same name.
+ *
+ * @param <T> type of the values on the channel
+ */
+public final class BusKey<T> {
+
+    private static final ConcurrentHashMap<String, BusKey<?>> KEYS = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    private final String mName;
+    private final Class<T> mType;
+    final int mIndex;
+
+    private BusKey(String name, Class<T> type, int index) {
+        mName = name;
+        mType = type;
+        mIndex = index;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is already declared with another type, or the
+     *                                  type is primitive, use {@link LiveDataBus#withInt(String)}
+     *                                  and the like for primitives
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    public static <T> BusKey<T> of(@NonNull String name, @NonNull Class<T> type) {
+        if (type.isPrimitive()) {
+            throw new IllegalArgumentException("Primitive type " + type + " for " + name);
+        }
+        BusKey<?> key = KEYS.get(name);
+        if (key == null) {
+            // an index lost to a race is never reused, the slot array just has a hole
+            BusKey<T> created = new BusKey<>(name, type, NEXT_INDEX.getAndIncrement());
+            key = KEYS.putIfAbsent(name, created);
+            if (key == null) {
+                return created;
+            }
+        }
+        if (key.mType != type) {
+            throw new IllegalArgumentException("Key " + name + " is declared as "
+                    + key.mType.getName() + ", not " + type.getName());
+        }
+        return (BusKey<T>) key;
+    }
+
+    /**
+     * @return the key declared with this name, null if there is none
+     */
+    @Nullable
+    static BusKey<?> find(String name) {
+        return KEYS.get(name);
+    }
+
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    @NonNull
+    public Class<T> getType() {
+        return mType;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BusKey{" + mName + ", " + mType.getSimpleName() + "}";
+    }
+}
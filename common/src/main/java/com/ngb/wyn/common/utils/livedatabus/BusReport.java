@@ -0,0 +1,107 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Size of {@link LiveDataBus} at the time {@link LiveDataBus#getReport()} was called.
+ */
+public final class BusReport {
+
+    // rough shallow sizes on ART: a channel with its observer list, runnables, post queue and map
+    // entry; an observer wrapper with its list entry; a primitive channel with its map entry
+    private static final int CHANNEL_BYTES = 512;
+    private static final int OBSERVER_BYTES = 80;
+    private static final int PRIMITIVE_CHANNEL_BYTES = 64;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final int mChannelCount;
+    private final int mPrimitiveChannelCount;
+    private final int mObservedChannelCount;
+    private final int mObserverCount;
+    private final int mValueCount;
+    private final int mWeakValueChannelCount;
+    private final long mEvictedCount;
+    private final long mEstimatedBytes;
+
+    BusReport(int channelCount, int primitiveChannelCount, int observedChannelCount,
+              int observerCount, int valueCount, int weakValueChannelCount, long evictedCount,
+              int slotCount) {
+        mChannelCount = channelCount;
+        mPrimitiveChannelCount = primitiveChannelCount;
+        mObservedChannelCount = observedChannelCount;
+        mObserverCount = observerCount;
+        mValueCount = valueCount;
+        mWeakValueChannelCount = weakValueChannelCount;
+        mEvictedCount = evictedCount;
+        mEstimatedBytes = (long) channelCount * CHANNEL_BYTES
+                + (long) observerCount * OBSERVER_BYTES
+                + (long) primitiveChannelCount * PRIMITIVE_CHANNEL_BYTES
+                + (long) slotCount * REFERENCE_BYTES;
+    }
+
+    /**
+     * @return the number of channels created by {@code with}, primitive channels excluded
+     */
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    public int getPrimitiveChannelCount() {
+        return mPrimitiveChannelCount;
+    }
+
+    /**
+     * @return the number of channels with at least one observer
+     */
+    public int getObservedChannelCount() {
+        return mObservedChannelCount;
+    }
+
+    public int getObserverCount() {
+        return mObserverCount;
+    }
+
+    /**
+     * @return the number of channels holding a value, weakly held values that have been collected
+     * excluded
+     */
+    public int getValueCount() {
+        return mValueCount;
+    }
+
+    /**
+     * @return the number of channels holding their value weakly
+     */
+    public int getWeakValueChannelCount() {
+        return mWeakValueChannelCount;
+    }
+
+    /**
+     * @return the number of channels evicted since the bus was created
+     */
+    public long getEvictedCount() {
+        return mEvictedCount;
+    }
+
+    /**
+     * @return a rough estimate of the memory used by the bus itself, the values and observers are
+     * not included
+     */
+    public long getEstimatedBytes() {
+        return mEstimatedBytes;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BusReport{channels=" + mChannelCount
+                + ", primitive=" + mPrimitiveChannelCount
+                + ", observed=" + mObservedChannelCount
+                + ", observers=" + mObserverCount
+                + ", values=" + mValueCount
+                + ", weak=" + mWeakValueChannelCount
+                + ", evicted=" + mEvictedCount
+                + ", estimated=" + mEstimatedBytes + "B"
+                + "}";
+    }
+}
@@ -0,0 +1,75 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.NonNull;
+
+import com.ngb.wyn.common.utils.LogUtil;
+
+/**
+ * Records what a {@link LiveData} channel does while metrics are enabled on the bus, see
+ * {@link LiveDataBus#enableMetrics(long)}. Recording happens on the main thread and
+ * {@link #snapshot(int)} may be called from any thread, so both hold this object's lock, which is
+ * never contended for long.
+ */
+final class ChannelMetrics {
+
+    private static final String TAG = "LiveDataBus";
+
+    private final String mKey;
+    private final long mSlowObserverNanos;
+    private final LatencyHistogram mDispatchLatency = new LatencyHistogram();
+    private final LatencyHistogram mObserverLatency = new LatencyHistogram();
+    private long mStartNanos = System.nanoTime();
+    private long mPublishCount;
+    private long mSlowObserverCount;
+
+    ChannelMetrics(@NonNull String key, long slowObserverMillis) {
+        mKey = key;
+        mSlowObserverNanos = slowObserverMillis > 0 ? slowObserverMillis * 1000000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * A value was set and dispatched to every observer in {@code nanos}.
+     */
+    synchronized void recordDispatch(long nanos) {
+        mPublishCount++;
+        mDispatchLatency.record(nanos);
+    }
+
+    /**
+     * One observer took {@code nanos} to handle a value; for the executor based thread modes this
+     * is only the time to hand the value over.
+     */
+    void recordObserver(@NonNull Object observer, long nanos) {
+        synchronized (this) {
+            mObserverLatency.record(nanos);
+            if (nanos < mSlowObserverNanos) {
+                return;
+            }
+            mSlowObserverCount++;
+        }
+        LogUtil.w(TAG, "slow observer on " + mKey + ": " + observer.getClass().getName()
+                + " took " + nanos / 1000000L + "ms");
+    }
+
+    synchronized void reset() {
+        mStartNanos = System.nanoTime();
+        mPublishCount = 0;
+        mSlowObserverCount = 0;
+        mDispatchLatency.reset();
+        mObserverLatency.reset();
+    }
+
+    synchronized ChannelSnapshot snapshot(int observerCount) {
+        long elapsedNanos = System.nanoTime() - mStartNanos;
+        double publishRate = elapsedNanos > 0 ? mPublishCount * 1e9d / elapsedNanos : 0d;
+        return new ChannelSnapshot(mKey, observerCount, mPublishCount, publishRate,
+                mDispatchLatency.getValueAtPercentile(50d),
+                mDispatchLatency.getValueAtPercentile(99d),
+                mDispatchLatency.getMaxValue(),
+                mObserverLatency.getTotalCount(),
+                mObserverLatency.getValueAtPercentile(50d),
+                mObserverLatency.getValueAtPercentile(99d),
+                mObserverLatency.getMaxValue(),
+                mSlowObserverCount);
+    }
+}
@@ -0,0 +1,122 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Metrics of one bus channel at the time {@link LiveDataBus#getMetricsSnapshot()} was called,
+ * counted since metrics were enabled or last reset. Latencies are in nanoseconds.
+ */
+public final class ChannelSnapshot {
+
+    private final String mKey;
+    private final int mObserverCount;
+    private final long mPublishCount;
+    private final double mPublishRate;
+    private final long mDispatchP50Nanos;
+    private final long mDispatchP99Nanos;
+    private final long mDispatchMaxNanos;
+    private final long mDeliveryCount;
+    private final long mObserverP50Nanos;
+    private final long mObserverP99Nanos;
+    private final long mObserverMaxNanos;
+    private final long mSlowObserverCount;
+
+    ChannelSnapshot(String key, int observerCount, long publishCount, double publishRate,
+                    long dispatchP50Nanos, long dispatchP99Nanos, long dispatchMaxNanos,
+                    long deliveryCount, long observerP50Nanos, long observerP99Nanos,
+                    long observerMaxNanos, long slowObserverCount) {
+        mKey = key;
+        mObserverCount = observerCount;
+        mPublishCount = publishCount;
+        mPublishRate = publishRate;
+        mDispatchP50Nanos = dispatchP50Nanos;
+        mDispatchP99Nanos = dispatchP99Nanos;
+        mDispatchMaxNanos = dispatchMaxNanos;
+        mDeliveryCount = deliveryCount;
+        mObserverP50Nanos = observerP50Nanos;
+        mObserverP99Nanos = observerP99Nanos;
+        mObserverMaxNanos = observerMaxNanos;
+        mSlowObserverCount = slowObserverCount;
+    }
+
+    public String getKey() {
+        return mKey;
+    }
+
+    public int getObserverCount() {
+        return mObserverCount;
+    }
+
+    /**
+     * @return how many values were set on the channel, including the ones that came through
+     * postValue
+     */
+    public long getPublishCount() {
+        return mPublishCount;
+    }
+
+    /**
+     * @return published values per second
+     */
+    public double getPublishRate() {
+        return mPublishRate;
+    }
+
+    /**
+     * Time to dispatch one value to all observers.
+     */
+    public long getDispatchP50Nanos() {
+        return mDispatchP50Nanos;
+    }
+
+    public long getDispatchP99Nanos() {
+        return mDispatchP99Nanos;
+    }
+
+    public long getDispatchMaxNanos() {
+        return mDispatchMaxNanos;
+    }
+
+    /**
+     * @return how many times an observer was called
+     */
+    public long getDeliveryCount() {
+        return mDeliveryCount;
+    }
+
+    /**
+     * Time a single observer took to handle a value.
+     */
+    public long getObserverP50Nanos() {
+        return mObserverP50Nanos;
+    }
+
+    public long getObserverP99Nanos() {
+        return mObserverP99Nanos;
+    }
+
+    public long getObserverMaxNanos() {
+        return mObserverMaxNanos;
+    }
+
+    /**
+     * @return how many deliveries took longer than the slow observer threshold
+     */
+    public long getSlowObserverCount() {
+        return mSlowObserverCount;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ChannelSnapshot{key=" + mKey
+                + ", observers=" + mObserverCount
+                + ", published=" + mPublishCount
+                + ", rate=" + String.format("%.1f", mPublishRate) + "/s"
+                + ", dispatch p50/p99/max=" + mDispatchP50Nanos + "/" + mDispatchP99Nanos + "/" + mDispatchMaxNanos + "ns"
+                + ", deliveries=" + mDeliveryCount
+                + ", observer p50/p99/max=" + mObserverP50Nanos + "/" + mObserverP99Nanos + "/" + mObserverMaxNanos + "ns"
+                + ", slow=" + mSlowObserverCount
+                + "}";
+    }
+}
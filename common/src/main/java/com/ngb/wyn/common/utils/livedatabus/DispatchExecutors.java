@@ -0,0 +1,114 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import android.annotation.SuppressLint;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors backing {@link ThreadMode#BACKGROUND} and {@link ThreadMode#SERIAL}, and frame
+ * scheduling for {@link Backpressure#LATEST_PER_FRAME}.
+ * Serial executors don't own a thread, they run their tasks one by one on the shared pool.
+ */
+final class DispatchExecutors {
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int POOL_SIZE = Math.max(2, Math.min(CPU_COUNT - 1, 4));
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private static final ThreadPoolExecutor BACKGROUND;
+
+    // Choreographer is per looper thread, so the main one is captured on the main thread once;
+    // postFrameCallback itself may be called from any thread
+    private static volatile Choreographer sMainChoreographer;
+
+    static {
+        BACKGROUND = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DispatchThreadFactory());
+        BACKGROUND.allowCoreThreadTimeOut(true);
+    }
+
+    private DispatchExecutors() {
+    }
+
+    static Executor background() {
+        return BACKGROUND;
+    }
+
+    static Executor newSerial() {
+        return new SerialExecutor(BACKGROUND);
+    }
+
+    /**
+     * Run the callback at the start of the next main thread frame, from any thread.
+     */
+    @SuppressLint("RestrictedApi")
+    static void postFrameCallback(final Choreographer.FrameCallback callback) {
+        Choreographer choreographer = sMainChoreographer;
+        if (choreographer != null) {
+            choreographer.postFrameCallback(callback);
+            return;
+        }
+        ArchTaskExecutor.getInstance().postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                Choreographer mainChoreographer = Choreographer.getInstance();
+                sMainChoreographer = mainChoreographer;
+                mainChoreographer.postFrameCallback(callback);
+            }
+        });
+    }
+
+    private static class SerialExecutor implements Executor {
+        private final Executor mExecutor;
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        private Runnable mActive;
+
+        SerialExecutor(Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public synchronized void execute(@NonNull final Runnable runnable) {
+            mTasks.offer(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                }
+            });
+            if (mActive == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            if ((mActive = mTasks.poll()) != null) {
+                mExecutor.execute(mActive);
+            }
+        }
+    }
+
+    private static class DispatchThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "LiveDataBus-" + mCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
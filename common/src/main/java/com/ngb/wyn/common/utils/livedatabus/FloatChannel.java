@@ -0,0 +1,55 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.MainThread;
+
+/**
+ * A bus channel carrying a {@code float}, without boxing.
+ */
+public class FloatChannel extends PrimitiveChannel<FloatChannel.Observer> {
+
+    public interface Observer {
+        void onChanged(float value);
+    }
+
+    private volatile float mValue;
+    // guarded by mDataLock
+    private float mPendingValue;
+
+    /**
+     * Sets the value and dispatches it to the active observers.
+     */
+    @MainThread
+    public void setValue(float value) {
+        assertMainThread("setValue");
+        mValue = value;
+        dispatchNewValue();
+    }
+
+    /**
+     * Sets the value from any thread. Only the latest value posted before the main thread runs
+     * the dispatch is delivered.
+     */
+    public void postValue(float value) {
+        synchronized (mDataLock) {
+            mPendingValue = value;
+            schedulePostLocked();
+        }
+    }
+
+    /**
+     * @return the current value, {@code 0f} if none has been set
+     */
+    public float getValue() {
+        return mValue;
+    }
+
+    @Override
+    void applyPendingValue() {
+        mValue = mPendingValue;
+    }
+
+    @Override
+    void notifyObserver(Observer observer) {
+        observer.onChanged(mValue);
+    }
+}
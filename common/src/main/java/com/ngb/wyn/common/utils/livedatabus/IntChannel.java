@@ -0,0 +1,55 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.MainThread;
+
+/**
+ * A bus channel carrying a {@code int}, without boxing.
+ */
+public class IntChannel extends PrimitiveChannel<IntChannel.Observer> {
+
+    public interface Observer {
+        void onChanged(int value);
+    }
+
+    private volatile int mValue;
+    // guarded by mDataLock
+    private int mPendingValue;
+
+    /**
+     * Sets the value and dispatches it to the active observers.
+     */
+    @MainThread
+    public void setValue(int value) {
+        assertMainThread("setValue");
+        mValue = value;
+        dispatchNewValue();
+    }
+
+    /**
+     * Sets the value from any thread. Only the latest value posted before the main thread runs
+     * the dispatch is delivered.
+     */
+    public void postValue(int value) {
+        synchronized (mDataLock) {
+            mPendingValue = value;
+            schedulePostLocked();
+        }
+    }
+
+    /**
+     * @return the current value, {@code 0} if none has been set
+     */
+    public int getValue() {
+        return mValue;
+    }
+
+    @Override
+    void applyPendingValue() {
+        mValue = mPendingValue;
+    }
+
+    @Override
+    void notifyObserver(Observer observer) {
+        observer.onChanged(mValue);
+    }
+}
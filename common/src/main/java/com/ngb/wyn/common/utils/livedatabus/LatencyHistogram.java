@@ -0,0 +1,84 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size latency histogram in the style of HdrHistogram: values below 16ns have their own
+ * bucket, above that every power of two is split into 8 linear sub-buckets, so a reported value is
+ * within 12.5% of the recorded one. Values are capped at 2^36ns (about 68s). Recording only
+ * increments an array element. Not thread safe.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // values below this are counted exactly
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount;
+    private long mMaxValue;
+
+    void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        mCounts[indexOf(value)]++;
+        mTotalCount++;
+        if (value > mMaxValue) {
+            mMaxValue = value;
+        }
+    }
+
+    long getTotalCount() {
+        return mTotalCount;
+    }
+
+    long getMaxValue() {
+        return mMaxValue;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return the highest value equivalent to the given percentile, 0 if nothing was recorded
+     */
+    long getValueAtPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100d * mTotalCount));
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += mCounts[i];
+            if (count >= target) {
+                return Math.min(highestEquivalentValue(i), mMaxValue);
+            }
+        }
+        return mMaxValue;
+    }
+
+    void reset() {
+        Arrays.fill(mCounts, 0);
+        mTotalCount = 0;
+        mMaxValue = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int offset = index - LINEAR_LIMIT;
+        int shift = offset / SUB_BUCKET_COUNT + 1;
+        long subBucket = SUB_BUCKET_COUNT + offset % SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
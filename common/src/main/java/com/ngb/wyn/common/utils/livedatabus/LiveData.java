@@ -4,6 +4,7 @@ import static androidx.lifecycle.Lifecycle.State.DESTROYED;
 import static androidx.lifecycle.Lifecycle.State.STARTED;
 
 import android.annotation.SuppressLint;
+import android.view.Choreographer;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
@@ -15,8 +16,11 @@ import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 
-import java.util.Iterator;
-import java.util.Map;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /*
  * Copyright (C) 2017 The Android Open Source Project
@@ -68,9 +72,17 @@ public abstract class LiveData<T> {
     static final int START_VERSION = -1;
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     static final Object NOT_SET = new Object();
-
-    private SafeIterableMap<Observer<? super T>, ObserverWrapper> mObservers =
-            new SafeIterableMap<>();
+    private static final Object[] NO_OBSERVERS = new Object[0];
+    // where a new observer starts: after the current value, before it, or after a replay of the
+    // buffered history
+    private static final int START_NON_STICKY = 0;
+    private static final int START_STICKY = 1;
+    private static final int START_REPLAY = 2;
+    // stands for null in mPostQueue, which does not accept null elements
+    private static final Object NULL_VALUE = new Object();
+
+    private final ObserverList<Observer<? super T>, ObserverWrapper> mObservers =
+            new ObserverList<>();
 
     // how many observers are in active state
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -81,6 +93,11 @@ public abstract class LiveData<T> {
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     volatile Object mPendingData = NOT_SET;
     private int mVersion = START_VERSION;
+    // set only while setPostedValue dispatches, the POSTING observers active at that point have
+    // already been called on the posting thread
+    private boolean mDispatchingPostedValue;
+    // copy-on-write snapshot of the ThreadMode.POSTING observers, read by postValue on any thread
+    private volatile Object[] mPostingObservers = NO_OBSERVERS;
 
     private boolean mDispatchingValue;
     @SuppressWarnings("FieldCanBeLocal")
@@ -93,11 +110,99 @@ public abstract class LiveData<T> {
                 newValue = mPendingData;
                 mPendingData = NOT_SET;
             }
-            //noinspection unchecked
-            setValue((T) newValue);
+            setPostedValue(newValue);
+        }
+    };
+
+    @Nullable
+    private ReplayBuffer mReplayBuffer;
+    // mData holds a WeakValue for non-null values, see setWeakValue
+    private boolean mWeakValue;
+    // keeps a weakly held value reachable while it is being dispatched
+    private Object mDispatchingData;
+
+    private volatile Backpressure mBackpressure = Backpressure.LATEST;
+    // Backpressure.DROP_OLDEST ring buffer, guarded by mDataLock
+    private Object[] mPostBuffer;
+    private int mPostBufferHead;
+    private int mPostBufferSize;
+    private boolean mPostBufferScheduled;
+    // counters guarded by mDataLock
+    private long mCoalescedCount;
+    private long mDroppedCount;
+    // Backpressure.DELIVER_ALL queue
+    private final ConcurrentLinkedQueue<Object> mPostQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mPostQueueScheduled = new AtomicBoolean();
+    // set by LiveDataBus while metrics are enabled, null otherwise
+    @Nullable
+    private volatile ChannelMetrics mMetrics;
+
+    private final Choreographer.FrameCallback mPostValueFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mPostValueRunnable.run();
+        }
+    };
+
+    private final Runnable mDrainBufferRunnable = new Runnable() {
+        @Override
+        public void run() {
+            int count;
+            synchronized (mDataLock) {
+                count = mPostBufferSize;
+            }
+            // only what was pending when this message started, later values get their own message
+            for (int i = 0; i < count; i++) {
+                Object newValue;
+                synchronized (mDataLock) {
+                    if (mPostBufferSize == 0) {
+                        break;
+                    }
+                    newValue = mPostBuffer[mPostBufferHead];
+                    mPostBuffer[mPostBufferHead] = null;
+                    mPostBufferHead = (mPostBufferHead + 1) % mPostBuffer.length;
+                    mPostBufferSize--;
+                }
+                setPostedValue(newValue);
+            }
+            boolean postTask;
+            synchronized (mDataLock) {
+                postTask = mPostBufferSize > 0;
+                mPostBufferScheduled = postTask;
+            }
+            if (postTask) {
+                ArchTaskExecutor.getInstance().postToMainThread(this);
+            }
+        }
+    };
+
+    private final Runnable mDrainQueueRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // cleared first, a value offered after this point schedules another message
+            mPostQueueScheduled.set(false);
+            Object newValue;
+            while ((newValue = mPostQueue.poll()) != null) {
+                setPostedValue(newValue == NULL_VALUE ? null : newValue);
+            }
         }
     };
 
+    /**
+     * Sets a value whose {@link ThreadMode#POSTING} observers have already been called by
+     * {@link #notifyPostingObservers(Object)}, so the dispatch skips them.
+     */
+    @SuppressWarnings("unchecked")
+    @MainThread
+    void setPostedValue(Object newValue) {
+        mDispatchingPostedValue = true;
+        try {
+            setValue((T) newValue);
+        } finally {
+            mDispatchingPostedValue = false;
+        }
+    }
+
     public void considerNotify(ObserverWrapper observer) {
         if (!observer.mActive) {
             return;
@@ -115,8 +220,26 @@ public abstract class LiveData<T> {
             return;
         }
         observer.mLastVersion = mVersion;
+        // only in the dispatch itself: a sticky observer added later, or one that was inactive
+        // when the value was posted and becomes active later, still gets the value here
+        if (observer.mThreadMode == ThreadMode.POSTING && mDispatchingPostedValue) {
+            return;
+        }
+        Object data = unwrap(mData);
+        if (data == NOT_SET) {
+            // a weakly held value that has been collected
+            return;
+        }
+        ChannelMetrics metrics = mMetrics;
+        if (metrics == null) {
+            //noinspection unchecked
+            observer.deliver((T) data);
+            return;
+        }
+        long start = System.nanoTime();
         //noinspection unchecked
-        observer.mObserver.onChanged((T) mData);
+        observer.deliver((T) data);
+        metrics.recordObserver(observer.mObserver, System.nanoTime() - start);
     }
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -132,9 +255,12 @@ public abstract class LiveData<T> {
                 considerNotify(initiator);
                 initiator = null;
             } else {
-                for (Iterator<Map.Entry<Observer<? super T>, ObserverWrapper>> iterator =
-                     mObservers.iteratorWithAdditions(); iterator.hasNext(); ) {
-                    considerNotify(iterator.next().getValue());
+                // a snapshot: observers added meanwhile start at the current version or, if sticky,
+                // invalidate this dispatch so the loop runs again over the new list
+                Object[] observers = mObservers.values();
+                for (int i = 0, size = mObservers.size(); i < size; i++) {
+                    //noinspection unchecked
+                    considerNotify((ObserverWrapper) observers[i]);
                     if (mDispatchInvalidated) {
                         break;
                     }
@@ -174,32 +300,66 @@ public abstract class LiveData<T> {
      */
     @MainThread
     public void observe(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer) {
-        assertMainThread("observe");
-        if (owner.getLifecycle().getCurrentState() == DESTROYED) {
-            // ignore
-            return;
-        }
-        LifecycleBoundObserver wrapper = new LifecycleBoundObserver(owner, observer);
-        wrapper.mLastVersion = getVersion();
-        ObserverWrapper existing = mObservers.putIfAbsent(observer, wrapper);
-        if (existing != null && !existing.isAttachedTo(owner)) {
-            throw new IllegalArgumentException("Cannot add the same observer"
-                    + " with different lifecycles");
-        }
-        if (existing != null) {
-            return;
-        }
-        owner.getLifecycle().addObserver(wrapper);
+        observe(owner, observer, START_NON_STICKY, ThreadMode.MAIN);
     }
 
+    /**
+     * Same as {@link #observe(LifecycleOwner, Observer)}, with the values delivered according to
+     * {@code threadMode}.
+     *
+     * @param owner      The LifecycleOwner which controls the observer
+     * @param observer   The observer that will receive the events
+     * @param threadMode The thread the observer is called on
+     */
+    @MainThread
+    public void observe(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer,
+                        @NonNull ThreadMode threadMode) {
+        observe(owner, observer, START_NON_STICKY, threadMode);
+    }
+
+    /**
+     * Same as {@link #observe(LifecycleOwner, Observer)}, except that a value set before this call
+     * is delivered once the owner becomes active.
+     *
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param observer The observer that will receive the events
+     */
     @MainThread
     public void observeSticky(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer) {
+        observe(owner, observer, START_STICKY, ThreadMode.MAIN);
+    }
+
+    @MainThread
+    public void observeSticky(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer,
+                              @NonNull ThreadMode threadMode) {
+        observe(owner, observer, START_STICKY, threadMode);
+    }
+
+    /**
+     * Same as {@link #observe(LifecycleOwner, Observer)}, except that once the owner becomes
+     * active the values kept by {@link #setReplay(int, long)} are delivered first, oldest first.
+     *
+     * @param owner    The LifecycleOwner which controls the observer
+     * @param observer The observer that will receive the events
+     */
+    @MainThread
+    public void observeReplay(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer) {
+        observe(owner, observer, START_REPLAY, ThreadMode.MAIN);
+    }
+
+    /**
+     * Non-sticky observers start at the current version, so {@link #considerNotify} skips the
+     * value that was already set; sticky observers start at {@link #START_VERSION}.
+     */
+    private void observe(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer,
+                         int start, @NonNull ThreadMode threadMode) {
         assertMainThread("observe");
         if (owner.getLifecycle().getCurrentState() == DESTROYED) {
             // ignore
             return;
         }
-        LifecycleBoundObserver wrapper = new LifecycleBoundObserver(owner, observer);
+        LifecycleBoundObserver wrapper = new LifecycleBoundObserver(owner, observer, threadMode);
+        initStart(wrapper, start);
         ObserverWrapper existing = mObservers.putIfAbsent(observer, wrapper);
         if (existing != null && !existing.isAttachedTo(owner)) {
             throw new IllegalArgumentException("Cannot add the same observer"
@@ -208,6 +368,7 @@ public abstract class LiveData<T> {
         if (existing != null) {
             return;
         }
+        addPostingObserver(wrapper);
         owner.getLifecycle().addObserver(wrapper);
     }
 
@@ -222,14 +383,62 @@ public abstract class LiveData<T> {
      * <p>
      * If the observer was already added with an owner to this LiveData, LiveData throws an
      * {@link IllegalArgumentException}.
+     * <p>
+     * The observer starts at the current version, so a value set before this call is not
+     * delivered. Use {@link #observeForeverSticky(Observer)} to receive it.
      *
      * @param observer The observer that will receive the events
      */
     @MainThread
     public void observeForever(@NonNull Observer<? super T> observer) {
+        observeForever(observer, START_NON_STICKY, ThreadMode.MAIN);
+    }
+
+    /**
+     * Same as {@link #observeForever(Observer)}, with the values delivered according to
+     * {@code threadMode}.
+     *
+     * @param observer   The observer that will receive the events
+     * @param threadMode The thread the observer is called on
+     */
+    @MainThread
+    public void observeForever(@NonNull Observer<? super T> observer, @NonNull ThreadMode threadMode) {
+        observeForever(observer, START_NON_STICKY, threadMode);
+    }
+
+    /**
+     * Same as {@link #observeForever(Observer)}, except that a value set before this call is
+     * delivered immediately.
+     *
+     * @param observer The observer that will receive the events
+     */
+    @MainThread
+    public void observeForeverSticky(@NonNull Observer<? super T> observer) {
+        observeForever(observer, START_STICKY, ThreadMode.MAIN);
+    }
+
+    @MainThread
+    public void observeForeverSticky(@NonNull Observer<? super T> observer,
+                                     @NonNull ThreadMode threadMode) {
+        observeForever(observer, START_STICKY, threadMode);
+    }
+
+    /**
+     * Same as {@link #observeForever(Observer)}, except that the values kept by
+     * {@link #setReplay(int, long)} are delivered first, oldest first.
+     *
+     * @param observer The observer that will receive the events
+     */
+    @MainThread
+    public void observeForeverReplay(@NonNull Observer<? super T> observer) {
+        observeForever(observer, START_REPLAY, ThreadMode.MAIN);
+    }
+
+    private void observeForever(@NonNull Observer<? super T> observer, int start,
+                                @NonNull ThreadMode threadMode) {
         assertMainThread("observeForever");
-        AlwaysActiveObserver wrapper = new AlwaysActiveObserver(observer);
-        wrapper.mLastVersion = getVersion();
+        AlwaysActiveObserver wrapper = new AlwaysActiveObserver(observer, threadMode);
+        initStart(wrapper, start);
         ObserverWrapper existing = mObservers.putIfAbsent(observer, wrapper);
         if (existing != null && existing instanceof LiveData.LifecycleBoundObserver) {
             throw new IllegalArgumentException("Cannot add the same observer"
@@ -238,22 +447,82 @@ public abstract class LiveData<T> {
         if (existing != null) {
             return;
         }
+        addPostingObserver(wrapper);
         wrapper.activeStateChanged(true);
     }
 
+    private void initStart(ObserverWrapper wrapper, int start) {
+        if (start != START_STICKY) {
+            wrapper.mLastVersion = getVersion();
+        }
+        wrapper.mReplayPending = start == START_REPLAY;
+    }
+
+    /**
+     * Keep the last {@code capacity} values passed to {@link #setValue(Object)} (including the
+     * ones that arrive through {@link #postValue(Object)}) for
+     * {@link #observeReplay(LifecycleOwner, Observer)} and {@link #observeForeverReplay(Observer)}.
+     * Values recorded before are discarded.
+     *
+     * @param capacity  The number of values kept, 0 to stop recording
+     * @param ttlMillis How long a value stays replayable, 0 or less for no limit
+     */
     @MainThread
-    public void observeForeverSticky(@NonNull Observer<? super T> observer) {
-        assertMainThread("observeForever");
-        AlwaysActiveObserver wrapper = new AlwaysActiveObserver(observer);
-        ObserverWrapper existing = mObservers.putIfAbsent(observer, wrapper);
-        if (existing != null && existing instanceof LiveData.LifecycleBoundObserver) {
-            throw new IllegalArgumentException("Cannot add the same observer"
-                    + " with different lifecycles");
+    public void setReplay(int capacity, long ttlMillis) {
+        assertMainThread("setReplay");
+        mReplayBuffer = capacity > 0 ? new ReplayBuffer(capacity, ttlMillis) : null;
+    }
+
+    /**
+     * Forget the recorded values, recording goes on.
+     */
+    @MainThread
+    public void clearReplay() {
+        assertMainThread("clearReplay");
+        if (mReplayBuffer != null) {
+            mReplayBuffer.clear();
         }
-        if (existing != null) {
+    }
+
+    private void replay(ObserverWrapper observer) {
+        ReplayBuffer replayBuffer = mReplayBuffer;
+        if (replayBuffer != null) {
+            for (Object value : replayBuffer.snapshot()) {
+                if (!observer.mActive) {
+                    return;
+                }
+                //noinspection unchecked
+                observer.deliver((T) value);
+            }
+        }
+        // the latest value was part of the history
+        observer.mLastVersion = mVersion;
+    }
+
+    private void addPostingObserver(ObserverWrapper wrapper) {
+        if (wrapper.mThreadMode != ThreadMode.POSTING) {
             return;
         }
-        wrapper.activeStateChanged(true);
+        Object[] observers = mPostingObservers;
+        Object[] newObservers = Arrays.copyOf(observers, observers.length + 1);
+        newObservers[observers.length] = wrapper;
+        mPostingObservers = newObservers;
+    }
+
+    private void removePostingObserver(ObserverWrapper wrapper) {
+        if (wrapper.mThreadMode != ThreadMode.POSTING) {
+            return;
+        }
+        Object[] observers = mPostingObservers;
+        for (int i = 0; i < observers.length; i++) {
+            if (observers[i] == wrapper) {
+                Object[] newObservers = new Object[observers.length - 1];
+                System.arraycopy(observers, 0, newObservers, 0, i);
+                System.arraycopy(observers, i + 1, newObservers, i, observers.length - i - 1);
+                mPostingObservers = newObservers;
+                return;
+            }
+        }
     }
 
     /**
@@ -268,6 +537,7 @@ public abstract class LiveData<T> {
         if (removed == null) {
             return;
         }
+        removePostingObserver(removed);
         removed.detachObserver();
         removed.activeStateChanged(false);
     }
@@ -281,9 +551,12 @@ public abstract class LiveData<T> {
     @MainThread
     public void removeObservers(@NonNull final LifecycleOwner owner) {
         assertMainThread("removeObservers");
-        for (Map.Entry<Observer<? super T>, ObserverWrapper> entry : mObservers) {
-            if (entry.getValue().isAttachedTo(owner)) {
-                removeObserver(entry.getKey());
+        Object[] observers = mObservers.values();
+        for (int i = 0, size = mObservers.size(); i < size; i++) {
+            //noinspection unchecked
+            ObserverWrapper wrapper = (ObserverWrapper) observers[i];
+            if (wrapper.isAttachedTo(owner)) {
+                removeObserver(wrapper.mObserver);
             }
         }
     }
@@ -300,20 +573,138 @@ public abstract class LiveData<T> {
      * <p>
      * If you called this method multiple times before a main thread executed a posted task, only
      * the last value would be dispatched.
+     * <p>
+     * Active {@link ThreadMode#POSTING} observers are called right here on the calling thread, and
+     * receive every posted value.
      *
      * @param value The new value
      */
     @SuppressLint("RestrictedApi")
     protected void postValue(T value) {
+        notifyPostingObservers(value);
+        switch (mBackpressure) {
+            case DROP_OLDEST:
+                postBuffered(value);
+                return;
+            case DELIVER_ALL:
+                mPostQueue.offer(value == null ? NULL_VALUE : value);
+                if (mPostQueueScheduled.compareAndSet(false, true)) {
+                    ArchTaskExecutor.getInstance().postToMainThread(mDrainQueueRunnable);
+                }
+                return;
+            default:
+                break;
+        }
         boolean postTask;
         synchronized (mDataLock) {
             postTask = mPendingData == NOT_SET;
+            if (!postTask) {
+                mCoalescedCount++;
+            }
             mPendingData = value;
         }
         if (!postTask) {
             return;
         }
-        ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
+        if (mBackpressure == Backpressure.LATEST_PER_FRAME) {
+            DispatchExecutors.postFrameCallback(mPostValueFrameCallback);
+        } else {
+            ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
+        }
+    }
+
+    /**
+     * Call the active {@link ThreadMode#POSTING} observers on the calling thread.
+     */
+    void notifyPostingObservers(T value) {
+        for (Object observer : mPostingObservers) {
+            //noinspection unchecked
+            ObserverWrapper wrapper = (ObserverWrapper) observer;
+            if (wrapper.mActive) {
+                wrapper.mObserver.onChanged(value);
+            }
+        }
+    }
+
+    @SuppressLint("RestrictedApi")
+    private void postBuffered(T value) {
+        boolean postTask;
+        synchronized (mDataLock) {
+            Object[] buffer = mPostBuffer;
+            if (mPostBufferSize == buffer.length) {
+                buffer[mPostBufferHead] = null;
+                mPostBufferHead = (mPostBufferHead + 1) % buffer.length;
+                mPostBufferSize--;
+                mDroppedCount++;
+            }
+            buffer[(mPostBufferHead + mPostBufferSize) % buffer.length] = value;
+            mPostBufferSize++;
+            postTask = !mPostBufferScheduled;
+            mPostBufferScheduled = true;
+        }
+        if (postTask) {
+            ArchTaskExecutor.getInstance().postToMainThread(mDrainBufferRunnable);
+        }
+    }
+
+    /**
+     * Sets how {@link #postValue(Object)} handles bursts. Values that are already pending are still
+     * dispatched under the previous policy.
+     *
+     * @param backpressure The policy
+     * @param capacity     The number of pending values kept by {@link Backpressure#DROP_OLDEST},
+     *                     ignored by the other policies
+     */
+    public void setBackpressure(@NonNull Backpressure backpressure, int capacity) {
+        if (backpressure == Backpressure.DROP_OLDEST) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            }
+            synchronized (mDataLock) {
+                if (mPostBuffer == null || mPostBuffer.length != capacity) {
+                    // keep the newest pending values that fit
+                    Object[] buffer = new Object[capacity];
+                    int keep = Math.min(mPostBufferSize, capacity);
+                    int skip = mPostBufferSize - keep;
+                    for (int i = 0; i < keep; i++) {
+                        buffer[i] = mPostBuffer[(mPostBufferHead + skip + i) % mPostBuffer.length];
+                    }
+                    mDroppedCount += skip;
+                    mPostBuffer = buffer;
+                    mPostBufferHead = 0;
+                    mPostBufferSize = keep;
+                }
+            }
+        }
+        mBackpressure = backpressure;
+    }
+
+    public void setBackpressure(@NonNull Backpressure backpressure) {
+        setBackpressure(backpressure, 0);
+    }
+
+    @NonNull
+    public Backpressure getBackpressure() {
+        return mBackpressure;
+    }
+
+    /**
+     * @return how many posted values were replaced by a newer one before being dispatched
+     */
+    public long getCoalescedCount() {
+        synchronized (mDataLock) {
+            return mCoalescedCount;
+        }
+    }
+
+    /**
+     * @return how many posted values were dropped because the {@link Backpressure#DROP_OLDEST}
+     * buffer was full
+     */
+    public long getDroppedCount() {
+        synchronized (mDataLock) {
+            return mDroppedCount;
+        }
     }
 
     /**
@@ -328,8 +719,20 @@ public abstract class LiveData<T> {
     protected void setValue(T value) {
         assertMainThread("setValue");
         mVersion++;
-        mData = value;
-        dispatchingValue(null);
+        mData = mWeakValue && value != null ? new WeakValue(value) : value;
+        if (mReplayBuffer != null) {
+            mReplayBuffer.add(value);
+        }
+        mDispatchingData = value;
+        ChannelMetrics metrics = mMetrics;
+        if (metrics == null) {
+            dispatchingValue(null);
+        } else {
+            long start = System.nanoTime();
+            dispatchingValue(null);
+            metrics.recordDispatch(System.nanoTime() - start);
+        }
+        mDispatchingData = null;
     }
 
     /**
@@ -341,7 +744,7 @@ public abstract class LiveData<T> {
      */
     @Nullable
     public T getValue() {
-        Object data = mData;
+        Object data = unwrap(mData);
         if (data != NOT_SET) {
             //noinspection unchecked
             return (T) data;
@@ -353,6 +756,79 @@ public abstract class LiveData<T> {
         return mVersion;
     }
 
+    /**
+     * Hold the current and future values through a {@link WeakReference}, so a value that nothing
+     * else references can be collected. Once collected, {@link #getValue()} returns null and
+     * observers added later get nothing, as if no value had been set. Values recorded for
+     * {@link #setReplay(int, long)} are still held strongly.
+     */
+    @MainThread
+    public void setWeakValue(boolean weak) {
+        assertMainThread("setWeakValue");
+        if (mWeakValue == weak) {
+            return;
+        }
+        mWeakValue = weak;
+        Object data = unwrap(mData);
+        if (data != NOT_SET) {
+            mData = weak && data != null ? new WeakValue(data) : data;
+        }
+    }
+
+    public boolean isWeakValue() {
+        return mWeakValue;
+    }
+
+    /**
+     * @return false if no value was ever set or a weakly held value has been collected
+     */
+    boolean hasValue() {
+        return unwrap(mData) != NOT_SET;
+    }
+
+    /**
+     * @return whether values passed to {@link #postValue(Object)} are still waiting for the main
+     * thread, under any {@link Backpressure}
+     */
+    boolean hasPendingPost() {
+        if (!mPostQueue.isEmpty() || mPostQueueScheduled.get()) {
+            return true;
+        }
+        synchronized (mDataLock) {
+            return mPendingData != NOT_SET || mPostBufferSize > 0 || mPostBufferScheduled;
+        }
+    }
+
+    /**
+     * @return whether delivery differs from the defaults, through
+     * {@link #setBackpressure(Backpressure, int)} or {@link #setReplay(int, long)}
+     */
+    @MainThread
+    boolean hasDeliveryConfig() {
+        return mBackpressure != Backpressure.LATEST || mReplayBuffer != null;
+    }
+
+    private static Object unwrap(Object data) {
+        if (data instanceof WeakValue) {
+            Object value = ((WeakValue) data).get();
+            return value != null ? value : NOT_SET;
+        }
+        return data;
+    }
+
+    void setMetrics(@Nullable ChannelMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Nullable
+    ChannelMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    int getObserverCount() {
+        return mObservers.size();
+    }
+
     /**
      * Called when the number of active observers change to 1 from 0.
      * <p>
@@ -401,8 +877,9 @@ public abstract class LiveData<T> {
         @NonNull
         final LifecycleOwner mOwner;
 
-        LifecycleBoundObserver(@NonNull LifecycleOwner owner, Observer<? super T> observer) {
-            super(observer);
+        LifecycleBoundObserver(@NonNull LifecycleOwner owner, Observer<? super T> observer,
+                               ThreadMode threadMode) {
+            super(observer, threadMode);
             mOwner = owner;
         }
 
@@ -433,11 +910,41 @@ public abstract class LiveData<T> {
 
     private abstract class ObserverWrapper {
         final Observer<? super T> mObserver;
-        boolean mActive;
+        final ThreadMode mThreadMode;
+        @Nullable
+        final Executor mExecutor;
+        // read off the main thread before an asynchronous delivery
+        volatile boolean mActive;
         int mLastVersion = START_VERSION;
+        // replay the recorded history the first time this observer becomes active
+        boolean mReplayPending;
 
-        ObserverWrapper(Observer<? super T> observer) {
+        ObserverWrapper(Observer<? super T> observer, ThreadMode threadMode) {
             mObserver = observer;
+            mThreadMode = threadMode;
+            if (threadMode == ThreadMode.BACKGROUND) {
+                mExecutor = DispatchExecutors.background();
+            } else if (threadMode == ThreadMode.SERIAL) {
+                mExecutor = DispatchExecutors.newSerial();
+            } else {
+                mExecutor = null;
+            }
+        }
+
+        void deliver(final T value) {
+            if (mExecutor == null) {
+                mObserver.onChanged(value);
+                return;
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // the owner may have stopped while this was queued
+                    if (mActive) {
+                        mObserver.onChanged(value);
+                    }
+                }
+            });
         }
 
         abstract boolean shouldBeActive();
@@ -465,6 +972,10 @@ public abstract class LiveData<T> {
                 onInactive();
             }
             if (mActive) {
+                if (mReplayPending) {
+                    mReplayPending = false;
+                    replay(this);
+                }
                 dispatchingValue(this);
             }
         }
@@ -472,8 +983,8 @@ public abstract class LiveData<T> {
 
     private class AlwaysActiveObserver extends ObserverWrapper {
 
-        AlwaysActiveObserver(Observer<? super T> observer) {
-            super(observer);
+        AlwaysActiveObserver(Observer<? super T> observer, ThreadMode threadMode) {
+            super(observer, threadMode);
         }
 
         @Override
@@ -489,4 +1000,11 @@ public abstract class LiveData<T> {
                     + " thread");
         }
     }
+
+    // a type of its own, so a WeakReference set as a value is not mistaken for one
+    private static final class WeakValue extends WeakReference<Object> {
+        WeakValue(Object referent) {
+            super(referent);
+        }
+    }
 }
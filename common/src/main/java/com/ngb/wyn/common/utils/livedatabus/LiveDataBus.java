@@ -1,22 +1,47 @@
 package com.ngb.wyn.common.utils.livedatabus;
 
-import androidx.annotation.NonNull;
-import androidx.lifecycle.LifecycleOwner;
-import androidx.lifecycle.Observer;
+import android.annotation.SuppressLint;
+import android.os.SystemClock;
 
-import com.ngb.wyn.common.utils.LogUtil;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.ArchTaskExecutor;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LiveDataBus {
 
-    private Map<String, BusMutableLiveData<Object>> mBusMap;
+    private final ConcurrentHashMap<String, BusMutableLiveData<Object>> mBusMap;
+    private final ConcurrentHashMap<String, PrimitiveChannel<?>> mPrimitiveMap;
+    // slow observer threshold in milliseconds while metrics are enabled, -1 when disabled
+    private volatile long mSlowObserverMillis = -1;
+    // channels by BusKey index, copy-on-write under this bus' lock
+    private volatile BusMutableLiveData<?>[] mSlots = new BusMutableLiveData<?>[16];
+    // idle channels are evicted after this long, -1 while eviction is disabled
+    private volatile long mEvictionTtlMillis = -1;
+    private volatile long mLastSweepTime;
+    private final AtomicBoolean mSweepScheduled = new AtomicBoolean();
+    // main thread only
+    private long mEvictedCount;
+    private final Runnable mSweepRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSweepScheduled.set(false);
+            long ttlMillis = mEvictionTtlMillis;
+            if (ttlMillis >= 0) {
+                sweep(ttlMillis);
+            }
+        }
+    };
 
     private LiveDataBus() {
-        mBusMap = new HashMap<>();
+        mBusMap = new ConcurrentHashMap<>();
+        mPrimitiveMap = new ConcurrentHashMap<>();
     }
 
     private static class SingleHolder {
@@ -27,115 +52,433 @@ public class LiveDataBus {
         return SingleHolder.LIVE_DATA_BUS;
     }
 
+    /**
+     * Safe to call from any thread. Existing channels are read without locking, and when several
+     * threads create the same key at once only one channel is kept.
+     *
+     * @param clz type of the values, not checked unless the key is declared as a {@link BusKey};
+     *            then it only has to be a supertype or subtype of the declared type, so
+     *            {@code with(key, Object.class)} keeps working on every channel
+     * @throws IllegalArgumentException if the key is declared as a {@link BusKey} of an unrelated
+     *                                  type
+     */
     public <T> MutableLiveData<T> with(String key, Class<T> clz) {
-        if (!mBusMap.containsKey(key)) {
-            mBusMap.put(key, new BusMutableLiveData<>());
+        BusKey<?> busKey = BusKey.find(key);
+        if (busKey != null) {
+            Class<?> declared = busKey.getType();
+            if (!declared.isAssignableFrom(clz) && !clz.isAssignableFrom(declared)) {
+                throw new IllegalArgumentException("Channel " + key + " is declared as "
+                        + declared.getName() + ", not " + clz.getName());
+            }
+        }
+        return (MutableLiveData<T>) getOrCreate(key);
+    }
+
+    /**
+     * Looks the channel up by the key's slot index, the name is only hashed the first time a key
+     * is used with this bus. The type needs no check here: {@link BusKey#of(String, Class)}
+     * allows one type per name.
+     */
+    public <T> MutableLiveData<T> with(BusKey<T> key) {
+        BusMutableLiveData<?>[] slots = mSlots;
+        int index = key.mIndex;
+        if (index < slots.length) {
+            BusMutableLiveData<?> liveData = slots[index];
+            if (liveData != null && liveData.touch()) {
+                return (MutableLiveData<T>) liveData;
+            }
+        }
+        return register(key);
+    }
+
+    private synchronized <T> MutableLiveData<T> register(BusKey<T> key) {
+        BusMutableLiveData<Object> liveData = getOrCreate(key.getName());
+        BusMutableLiveData<?>[] slots = mSlots;
+        int index = key.mIndex;
+        if (index >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(slots.length * 2, index + 1));
+        } else {
+            slots = slots.clone();
+        }
+        slots[index] = liveData;
+        mSlots = slots;
+        return (MutableLiveData<T>) liveData;
+    }
+
+    private BusMutableLiveData<Object> getOrCreate(String key) {
+        while (true) {
+            BusMutableLiveData<Object> liveData = mBusMap.get(key);
+            if (liveData == null) {
+                BusMutableLiveData<Object> created = new BusMutableLiveData<>();
+                liveData = mBusMap.putIfAbsent(key, created);
+                if (liveData == null) {
+                    long slowObserverMillis = mSlowObserverMillis;
+                    if (slowObserverMillis >= 0) {
+                        created.setMetrics(new ChannelMetrics(key, slowObserverMillis));
+                    }
+                    onChannelCreated();
+                    return created;
+                }
+            }
+            if (liveData.touch()) {
+                return liveData;
+            }
+            // evicted while we were looking it up, the sweep removes it from the map
+            mBusMap.remove(key, liveData);
         }
-        return (MutableLiveData<T>) mBusMap.get(key);
     }
 
     public MutableLiveData<Object> with(String key) {
         return with(key, Object.class);
     }
 
-    private static class BusMutableLiveData<T> extends MutableLiveData<T> {
-        private Map<Observer<? super T>, Observer<? super T>> map = new HashMap<>();
+    /**
+     * A channel carrying an {@code int} without boxing. Primitive channels have their own key
+     * space, separate from {@link #with(String, Class)}.
+     *
+     * @throws IllegalArgumentException if the key is already used by another primitive type
+     */
+    public IntChannel withInt(String key) {
+        return withPrimitive(key, IntChannel.class);
+    }
 
-        @Override
-        public void observe(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer) {
-            super.observe(owner, observer);
-            try {
-                hook(observer);
-            } catch (Exception e) {
-                LogUtil.e(e.getMessage());
+    /**
+     * @see #withInt(String)
+     */
+    public LongChannel withLong(String key) {
+        return withPrimitive(key, LongChannel.class);
+    }
+
+    /**
+     * @see #withInt(String)
+     */
+    public FloatChannel withFloat(String key) {
+        return withPrimitive(key, FloatChannel.class);
+    }
+
+    private <C extends PrimitiveChannel<?>> C withPrimitive(String key, Class<C> type) {
+        PrimitiveChannel<?> channel = mPrimitiveMap.get(key);
+        if (channel == null) {
+            PrimitiveChannel<?> created = newPrimitiveChannel(type);
+            channel = mPrimitiveMap.putIfAbsent(key, created);
+            if (channel == null) {
+                channel = created;
             }
         }
+        if (channel.getClass() != type) {
+            throw new IllegalArgumentException("Channel " + key + " is "
+                    + channel.getClass().getSimpleName() + ", not " + type.getSimpleName());
+        }
+        return type.cast(channel);
+    }
 
-        @Override
-        public void observeSticky(@NonNull LifecycleOwner owner, @NonNull Observer<? super T> observer) {
-            super.observeSticky(owner, observer);
+    private static PrimitiveChannel<?> newPrimitiveChannel(Class<?> type) {
+        if (type == IntChannel.class) {
+            return new IntChannel();
+        } else if (type == LongChannel.class) {
+            return new LongChannel();
+        } else {
+            return new FloatChannel();
         }
+    }
 
-        @Override
-        public void observeForever(@NonNull Observer<? super T> observer) {
-            if (!map.containsKey(observer)) {
-                map.put(observer, new ObserverWrapper(observer));
+    /**
+     * Evict channels that had no observers, no value and were not returned by {@code with} for
+     * {@code ttlMillis}. The map only grows when channels are created, so that is when a sweep is
+     * scheduled, on the main thread and at most once per TTL. Primitive channels are never
+     * evicted.
+     * <p>
+     * A channel kept in a field past the TTL without observers may be evicted, after which
+     * {@code with} returns a new channel for the same key; look channels up again instead of
+     * keeping them around unobserved. Channels holding a value, including one set through
+     * {@link LiveData#setWeakValue(boolean)} that has not been collected yet, stay, and so do
+     * channels with posted values still waiting for the main thread and channels whose
+     * {@link LiveData#setBackpressure(Backpressure, int)} or {@link LiveData#setReplay(int, long)}
+     * differs from the defaults; reset those to let the channel go.
+     * <p>
+     * The weak value flag and the metrics counters are not kept: a channel created again after an
+     * eviction holds its values strongly until {@link LiveData#setWeakValue(boolean)} is called
+     * on it, and its metrics start from zero.
+     *
+     * @param ttlMillis 0 evicts idle channels at the next sweep, less than 0 disables eviction
+     */
+    public void setEvictionTtl(long ttlMillis) {
+        mEvictionTtlMillis = ttlMillis < 0 ? -1 : ttlMillis;
+    }
+
+    public long getEvictionTtl() {
+        return mEvictionTtlMillis;
+    }
+
+    /**
+     * Evict every idle channel, as described in {@link #setEvictionTtl(long)}, that was not looked
+     * up since the last sweep, whatever the TTL, e.g. from {@code onTrimMemory}.
+     *
+     * @return the number of channels evicted
+     */
+    @MainThread
+    public int evictIdleChannels() {
+        return sweep(0);
+    }
+
+    /**
+     * Safe to call from any thread; the counts are read without synchronizing with the main thread
+     * and may be slightly out of date.
+     */
+    public BusReport getReport() {
+        int channelCount = 0;
+        int observedCount = 0;
+        int observerCount = 0;
+        int valueCount = 0;
+        int weakCount = 0;
+        for (BusMutableLiveData<Object> liveData : mBusMap.values()) {
+            int observers = liveData.getObserverCount();
+            channelCount++;
+            observerCount += observers;
+            if (observers > 0) {
+                observedCount++;
+            }
+            if (liveData.hasValue()) {
+                valueCount++;
             }
-            super.observeForever(map.get(observer));
+            if (liveData.isWeakValue()) {
+                weakCount++;
+            }
+        }
+        int slotCount = mSlots.length;
+        long evictedCount;
+        synchronized (this) {
+            evictedCount = mEvictedCount;
         }
+        return new BusReport(channelCount, mPrimitiveMap.size(), observedCount, observerCount,
+                valueCount, weakCount, evictedCount, slotCount);
+    }
 
-        @Override
-        public void observeForeverSticky(@NonNull Observer<? super T> observer) {
-            super.observeForeverSticky(observer);
+    private void onChannelCreated() {
+        long ttlMillis = mEvictionTtlMillis;
+        if (ttlMillis < 0 || SystemClock.elapsedRealtime() - mLastSweepTime < ttlMillis) {
+            return;
+        }
+        if (mSweepScheduled.compareAndSet(false, true)) {
+            postToMainThread(mSweepRunnable);
         }
+    }
 
-        @Override
-        public void removeObserver(@NonNull Observer<? super T> observer) {
-            Observer<? super T> realObserver = null;
-            if (map.containsKey(observer)) {
-                realObserver = map.remove(observer);
-            } else {
-                realObserver = observer;
+    @SuppressLint("RestrictedApi")
+    private static void postToMainThread(Runnable runnable) {
+        ArchTaskExecutor.getInstance().postToMainThread(runnable);
+    }
+
+    /**
+     * A channel is evicted on the first sweep that finds it idle for at least {@code ttlMillis},
+     * idle meaning no observers, no value, no posted value waiting, default delivery and no lookup
+     * since the previous sweep.
+     */
+    @MainThread
+    private int sweep(long ttlMillis) {
+        long now = SystemClock.elapsedRealtime();
+        mLastSweepTime = now;
+        int evicted = 0;
+        for (Map.Entry<String, BusMutableLiveData<Object>> entry : mBusMap.entrySet()) {
+            BusMutableLiveData<Object> liveData = entry.getValue();
+            if (!liveData.tryEvict(now, ttlMillis)) {
+                continue;
             }
-            super.removeObserver(realObserver);
+            mBusMap.remove(entry.getKey(), liveData);
+            clearSlot(entry.getKey(), liveData);
+            evicted++;
+        }
+        synchronized (this) {
+            mEvictedCount += evicted;
         }
+        return evicted;
+    }
 
-        private void hook(Observer<? super T> observer) throws Exception{
-            Class<LiveData> classLiveData = LiveData.class;
-            Field fieldObservers = classLiveData.getDeclaredField("mObservers");
-            fieldObservers.setAccessible(true);
-            Object objectObservers = fieldObservers.get(this);
-            Class<?> classObservers = objectObservers.getClass();
-            Method methodGets = classObservers.getDeclaredMethod("get", Object.class);
-            methodGets.setAccessible(true);
-            Object objectWrapperEntry = methodGets.invoke(objectObservers, observer);
-            Object objectWrapper = null;
-            if (objectWrapperEntry instanceof Map.Entry) {
-                objectWrapper = ((Map.Entry<?, ?>) objectWrapperEntry).getValue();
-            }
-            if (objectWrapper == null) {
-                throw new NullPointerException("Wrapper can not be null.");
-            }
-            Class<?> classObserverWrapper = objectWrapper.getClass().getSuperclass();
-            Field fieldLastVersion = classObserverWrapper.getDeclaredField("mLastVersion");
-            fieldLastVersion.setAccessible(true);
+    private synchronized void clearSlot(String key, BusMutableLiveData<?> liveData) {
+        BusKey<?> busKey = BusKey.find(key);
+        BusMutableLiveData<?>[] slots = mSlots;
+        if (busKey == null || busKey.mIndex >= slots.length || slots[busKey.mIndex] != liveData) {
+            return;
+        }
+        slots = slots.clone();
+        slots[busKey.mIndex] = null;
+        mSlots = slots;
+    }
 
-            Field fieldVersion = classLiveData.getDeclaredField("mVersion");
-            fieldVersion.setAccessible(true);
-            Object objectVersion = fieldVersion.get(this);
+    /**
+     * Start recording per channel metrics: publish count and rate, observer count, dispatch and
+     * observer latency histograms. Observers slower than the threshold are counted and logged.
+     * While disabled, which is the default, a channel pays one volatile read per value and
+     * delivery. Primitive channels are not instrumented.
+     * <p>
+     * Observers in {@link ThreadMode#BACKGROUND} or {@link ThreadMode#SERIAL} are timed only for
+     * handing the value over to their executor.
+     *
+     * @param slowObserverThresholdMillis 0 or less never reports a slow observer
+     */
+    public void enableMetrics(long slowObserverThresholdMillis) {
+        long threshold = Math.max(0, slowObserverThresholdMillis);
+        mSlowObserverMillis = threshold;
+        for (Map.Entry<String, BusMutableLiveData<Object>> entry : mBusMap.entrySet()) {
+            ChannelMetrics metrics = entry.getValue().getMetrics();
+            if (metrics == null) {
+                entry.getValue().setMetrics(new ChannelMetrics(entry.getKey(), threshold));
+            }
+        }
+    }
 
-            fieldLastVersion.set(objectWrapper, objectVersion);
+    /**
+     * Stop recording and drop what has been recorded so far.
+     */
+    public void disableMetrics() {
+        mSlowObserverMillis = -1;
+        for (BusMutableLiveData<Object> liveData : mBusMap.values()) {
+            liveData.setMetrics(null);
         }
     }
 
-    private static class ObserverWrapper<T> implements Observer<T> {
+    public boolean isMetricsEnabled() {
+        return mSlowObserverMillis >= 0;
+    }
 
-        private Observer<T> mObserver;
+    /**
+     * Clear what has been recorded so far, metrics stay enabled.
+     */
+    public void resetMetrics() {
+        for (BusMutableLiveData<Object> liveData : mBusMap.values()) {
+            ChannelMetrics metrics = liveData.getMetrics();
+            if (metrics != null) {
+                metrics.reset();
+            }
+        }
+    }
 
-        public ObserverWrapper(Observer<T> observer) {
-            this.mObserver = observer;
+    /**
+     * Safe to call from any thread; the observer counts are read without synchronizing with the
+     * main thread and may be slightly out of date.
+     *
+     * @return one snapshot per channel, empty if metrics are disabled
+     */
+    public List<ChannelSnapshot> getMetricsSnapshot() {
+        List<ChannelSnapshot> snapshots = new ArrayList<>();
+        for (BusMutableLiveData<Object> liveData : mBusMap.values()) {
+            ChannelMetrics metrics = liveData.getMetrics();
+            if (metrics != null) {
+                snapshots.add(metrics.snapshot(liveData.getObserverCount()));
+            }
         }
-        @Override
-        public void onChanged(T t) {
-            if (mObserver != null) {
-                if (isCallOnObserve()) {
-                    return;
+        return snapshots;
+    }
+
+    /**
+     * Start a batch that publishes to several channels with a single main thread message.
+     */
+    public Batch batch() {
+        return new Batch(this);
+    }
+
+    private static class BusMutableLiveData<T> extends MutableLiveData<T> {
+        // looked up since the last sweep; set and checked against mEvicted under this lock
+        private volatile boolean mAccessed = true;
+        private boolean mEvicted;
+        // main thread only, when a sweep first found the channel idle
+        private long mIdleSince;
+
+        /**
+         * @return false if the channel has been evicted and must not be handed out
+         */
+        boolean touch() {
+            if (mAccessed) {
+                return true;
+            }
+            synchronized (this) {
+                if (mEvicted) {
+                    return false;
                 }
-                mObserver.onChanged(t);
+                mAccessed = true;
+                return true;
             }
         }
 
-        private boolean isCallOnObserve() {
-            StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-            if (stackTraceElements.length > 0) {
-                for (StackTraceElement element : stackTraceElements) {
-                    if ("android.arch.lifecycle.LiveData".equals(element.getClassName()) &&
-                            "observeForever".equals(element.getMethodName())) {
-                        return true;
-                    }
+        @MainThread
+        synchronized boolean tryEvict(long now, long ttlMillis) {
+            if (mAccessed || hasObservers() || hasValue() || hasPendingPost()
+                    || hasDeliveryConfig()) {
+                mAccessed = false;
+                mIdleSince = now;
+                return false;
+            }
+            if (now - mIdleSince < ttlMillis) {
+                return false;
+            }
+            mEvicted = true;
+            return true;
+        }
+    }
+
+    /**
+     * Collects values for several channels and publishes them together. On {@link #commit()} the
+     * values are set on the main thread in the order they were added, within one message, as if
+     * {@link MutableLiveData#setValue(Object)} had been called for each of them.
+     * <p>
+     * {@link ThreadMode#POSTING} observers are called on the committing thread, as with
+     * {@link MutableLiveData#postValue(Object)}. A channel's {@link Backpressure} does not apply:
+     * the batch is already a single message, and every value added is set, including several
+     * values for the same channel.
+     * <p>
+     * A batch is not thread safe, but can be reused after it has been committed.
+     */
+    public static final class Batch {
+        private final LiveDataBus mBus;
+        private List<MutableLiveData<Object>> mChannels = new ArrayList<>();
+        private List<Object> mValues = new ArrayList<>();
+
+        private Batch(LiveDataBus bus) {
+            mBus = bus;
+        }
+
+        public Batch post(@NonNull String key, Object value) {
+            return post(mBus.with(key), value);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> Batch post(@NonNull MutableLiveData<T> channel, T value) {
+            mChannels.add((MutableLiveData<Object>) channel);
+            mValues.add(value);
+            return this;
+        }
+
+        /**
+         * Publish everything added so far. Runs immediately on the main thread, otherwise calls
+         * the POSTING observers here and posts one message to the main thread.
+         */
+        @SuppressLint("RestrictedApi")
+        public void commit() {
+            if (mChannels.isEmpty()) {
+                return;
+            }
+            final List<MutableLiveData<Object>> channels = mChannels;
+            final List<Object> values = mValues;
+            mChannels = new ArrayList<>();
+            mValues = new ArrayList<>();
+            int size = channels.size();
+            if (ArchTaskExecutor.getInstance().isMainThread()) {
+                for (int i = 0; i < size; i++) {
+                    channels.get(i).setValue(values.get(i));
                 }
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                channels.get(i).notifyPostingObservers(values.get(i));
             }
-            return false;
+            ArchTaskExecutor.getInstance().postToMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0, size = channels.size(); i < size; i++) {
+                        channels.get(i).setPostedValue(values.get(i));
+                    }
+                }
+            });
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.MainThread;
+
+/**
+ * A bus channel carrying a {@code long}, without boxing.
+ */
+public class LongChannel extends PrimitiveChannel<LongChannel.Observer> {
+
+    public interface Observer {
+        void onChanged(long value);
+    }
+
+    private volatile long mValue;
+    // guarded by mDataLock
+    private long mPendingValue;
+
+    /**
+     * Sets the value and dispatches it to the active observers.
+     */
+    @MainThread
+    public void setValue(long value) {
+        assertMainThread("setValue");
+        mValue = value;
+        dispatchNewValue();
+    }
+
+    /**
+     * Sets the value from any thread. Only the latest value posted before the main thread runs
+     * the dispatch is delivered.
+     */
+    public void postValue(long value) {
+        synchronized (mDataLock) {
+            mPendingValue = value;
+            schedulePostLocked();
+        }
+    }
+
+    /**
+     * @return the current value, {@code 0L} if none has been set
+     */
+    public long getValue() {
+        return mValue;
+    }
+
+    @Override
+    void applyPendingValue() {
+        mValue = mPendingValue;
+    }
+
+    @Override
+    void notifyObserver(Observer observer) {
+        observer.onChanged(mValue);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The observers of a {@link LiveData}, keyed by the user's observer.
+ * Lookups go through a HashMap; the values are also kept in an array that dispatch iterates
+ * directly, so iterating allocates nothing. Adding only writes past the current size and removing
+ * copies the array, so observers added or removed while a dispatch is running do not disturb it.
+ * It is NOT thread safe.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+final class ObserverList<K, V> {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private final HashMap<K, V> mIndex = new HashMap<>();
+    private Object[] mValues = new Object[MIN_CAPACITY];
+    private int mSize;
+
+    @Nullable
+    V get(@NonNull K key) {
+        return mIndex.get(key);
+    }
+
+    /**
+     * @return the value already associated with the key, or null if {@code value} was added
+     */
+    @Nullable
+    V putIfAbsent(@NonNull K key, @NonNull V value) {
+        V existing = mIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        mIndex.put(key, value);
+        if (mSize == mValues.length) {
+            mValues = Arrays.copyOf(mValues, mSize * 2);
+        }
+        mValues[mSize++] = value;
+        return null;
+    }
+
+    /**
+     * @return the removed value, or null if there was none
+     */
+    @Nullable
+    V remove(@NonNull K key) {
+        V removed = mIndex.remove(key);
+        if (removed == null) {
+            return null;
+        }
+        Object[] values = mValues;
+        for (int i = 0; i < mSize; i++) {
+            if (values[i] == removed) {
+                Object[] newValues = new Object[Math.max(MIN_CAPACITY, mSize - 1)];
+                System.arraycopy(values, 0, newValues, 0, i);
+                System.arraycopy(values, i + 1, newValues, i, mSize - i - 1);
+                mValues = newValues;
+                mSize--;
+                break;
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return the values in insertion order, valid up to {@link #size()} read at the same time.
+     * That range is never modified afterwards, so it can be iterated while observers are added or
+     * removed. Must not be modified.
+     */
+    @NonNull
+    Object[] values() {
+        return mValues;
+    }
+}
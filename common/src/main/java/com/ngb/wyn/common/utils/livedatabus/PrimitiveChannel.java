@@ -0,0 +1,262 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static androidx.lifecycle.Lifecycle.State.DESTROYED;
+import static androidx.lifecycle.Lifecycle.State.STARTED;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.GenericLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Arrays;
+
+/**
+ * Base of the bus channels that carry a primitive value, see {@link IntChannel},
+ * {@link LongChannel} and {@link FloatChannel}.
+ * <p>
+ * Observers follow the same rules as {@link LiveData}: they are called on the main thread, only
+ * while their owner is at least {@link Lifecycle.State#STARTED}, are removed when it is destroyed,
+ * and are non-sticky unless registered with one of the sticky methods. Publishing a value does not
+ * allocate: the value is kept in a primitive field, versions are ints, and posting reuses one
+ * runnable and keeps only the latest pending value.
+ *
+ * @param <O> The primitive observer type
+ */
+public abstract class PrimitiveChannel<O> {
+
+    static final int START_VERSION = -1;
+
+    final Object mDataLock = new Object();
+
+    // copy-on-write, only modified on the main thread, so dispatch can iterate it without copying
+    private Subscription[] mSubscriptions = new Subscription[0];
+    private int mVersion = START_VERSION;
+    private boolean mDispatchingValue;
+    private boolean mDispatchInvalidated;
+    // guarded by mDataLock
+    private boolean mPostPending;
+
+    private final Runnable mPostValueRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (mDataLock) {
+                mPostPending = false;
+                applyPendingValue();
+            }
+            dispatchNewValue();
+        }
+    };
+
+    PrimitiveChannel() {
+    }
+
+    /**
+     * Copy the pending value into the current value, called with {@link #mDataLock} held.
+     */
+    abstract void applyPendingValue();
+
+    /**
+     * Call the observer with the current value.
+     */
+    abstract void notifyObserver(O observer);
+
+    @MainThread
+    public void observe(@NonNull LifecycleOwner owner, @NonNull O observer) {
+        addObserver(owner, observer, false);
+    }
+
+    @MainThread
+    public void observeSticky(@NonNull LifecycleOwner owner, @NonNull O observer) {
+        addObserver(owner, observer, true);
+    }
+
+    @MainThread
+    public void observeForever(@NonNull O observer) {
+        addObserver(null, observer, false);
+    }
+
+    @MainThread
+    public void observeForeverSticky(@NonNull O observer) {
+        addObserver(null, observer, true);
+    }
+
+    @MainThread
+    public void removeObserver(@NonNull O observer) {
+        removeObserverInternal(observer);
+    }
+
+    private void removeObserverInternal(Object observer) {
+        assertMainThread("removeObserver");
+        Subscription[] subscriptions = mSubscriptions;
+        for (int i = 0; i < subscriptions.length; i++) {
+            Subscription subscription = subscriptions[i];
+            if (subscription.mObserver == observer) {
+                Subscription[] newSubscriptions = new Subscription[subscriptions.length - 1];
+                System.arraycopy(subscriptions, 0, newSubscriptions, 0, i);
+                System.arraycopy(subscriptions, i + 1, newSubscriptions, i, subscriptions.length - i - 1);
+                mSubscriptions = newSubscriptions;
+                subscription.mActive = false;
+                if (subscription.mOwner != null) {
+                    subscription.mOwner.getLifecycle().removeObserver(subscription);
+                }
+                return;
+            }
+        }
+    }
+
+    public boolean hasObservers() {
+        return mSubscriptions.length > 0;
+    }
+
+    /**
+     * @return whether a value has been set or posted and dispatched
+     */
+    public boolean hasValue() {
+        return mVersion != START_VERSION;
+    }
+
+    /**
+     * Called by the subclass from {@code setValue} after the current value has been replaced.
+     */
+    @MainThread
+    void dispatchNewValue() {
+        mVersion++;
+        dispatchingValue(null);
+    }
+
+    /**
+     * Called by the subclass from {@code postValue} with {@link #mDataLock} held, after the
+     * pending value has been stored. Only the first post before the main thread runs the dispatch
+     * schedules it, later ones just replace the pending value.
+     */
+    @SuppressLint("RestrictedApi")
+    void schedulePostLocked() {
+        if (mPostPending) {
+            return;
+        }
+        mPostPending = true;
+        ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
+    }
+
+    private void addObserver(@Nullable LifecycleOwner owner, @NonNull O observer, boolean sticky) {
+        assertMainThread(owner != null ? "observe" : "observeForever");
+        if (owner != null && owner.getLifecycle().getCurrentState() == DESTROYED) {
+            return;
+        }
+        for (Subscription subscription : mSubscriptions) {
+            if (subscription.mObserver == observer) {
+                if (subscription.mOwner != owner) {
+                    throw new IllegalArgumentException("Cannot add the same observer"
+                            + " with different lifecycles");
+                }
+                return;
+            }
+        }
+        Subscription subscription = new Subscription(this, owner, observer);
+        if (!sticky) {
+            subscription.mLastVersion = mVersion;
+        }
+        Subscription[] subscriptions = Arrays.copyOf(mSubscriptions, mSubscriptions.length + 1);
+        subscriptions[subscriptions.length - 1] = subscription;
+        mSubscriptions = subscriptions;
+        if (owner != null) {
+            owner.getLifecycle().addObserver(subscription);
+        } else {
+            subscription.activeStateChanged(true);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void considerNotify(Subscription subscription) {
+        if (!subscription.mActive) {
+            return;
+        }
+        if (!subscription.shouldBeActive()) {
+            subscription.activeStateChanged(false);
+            return;
+        }
+        if (subscription.mLastVersion >= mVersion) {
+            return;
+        }
+        subscription.mLastVersion = mVersion;
+        notifyObserver((O) subscription.mObserver);
+    }
+
+    private void dispatchingValue(@Nullable Subscription initiator) {
+        if (mDispatchingValue) {
+            mDispatchInvalidated = true;
+            return;
+        }
+        mDispatchingValue = true;
+        do {
+            mDispatchInvalidated = false;
+            if (initiator != null) {
+                considerNotify(initiator);
+                initiator = null;
+            } else {
+                // a snapshot: observers added meanwhile start at the current version anyway, and
+                // removed ones are no longer active
+                for (Subscription subscription : mSubscriptions) {
+                    considerNotify(subscription);
+                    if (mDispatchInvalidated) {
+                        break;
+                    }
+                }
+            }
+        } while (mDispatchInvalidated);
+        mDispatchingValue = false;
+    }
+
+    @SuppressLint("RestrictedApi")
+    static void assertMainThread(String methodName) {
+        if (!ArchTaskExecutor.getInstance().isMainThread()) {
+            throw new IllegalStateException("Cannot invoke " + methodName + " on a background"
+                    + " thread");
+        }
+    }
+
+    // static, since arrays of an inner class of a generic class cannot be created
+    @SuppressLint("RestrictedApi")
+    private static final class Subscription implements GenericLifecycleObserver {
+        final PrimitiveChannel<?> mChannel;
+        @Nullable
+        final LifecycleOwner mOwner;
+        final Object mObserver;
+        boolean mActive;
+        int mLastVersion = START_VERSION;
+
+        Subscription(PrimitiveChannel<?> channel, @Nullable LifecycleOwner owner, Object observer) {
+            mChannel = channel;
+            mOwner = owner;
+            mObserver = observer;
+        }
+
+        boolean shouldBeActive() {
+            return mOwner == null || mOwner.getLifecycle().getCurrentState().isAtLeast(STARTED);
+        }
+
+        @Override
+        public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+            if (mOwner.getLifecycle().getCurrentState() == DESTROYED) {
+                mChannel.removeObserverInternal(mObserver);
+                return;
+            }
+            activeStateChanged(shouldBeActive());
+        }
+
+        void activeStateChanged(boolean newActive) {
+            if (newActive == mActive) {
+                return;
+            }
+            mActive = newActive;
+            if (mActive) {
+                mChannel.dispatchingValue(this);
+            }
+        }
+    }
+}
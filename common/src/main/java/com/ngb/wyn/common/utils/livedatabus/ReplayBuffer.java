@@ -0,0 +1,68 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import android.os.SystemClock;
+
+/**
+ * Ring buffer of the last values set on a {@link LiveData}, replayed to observers registered with
+ * {@link LiveData#observeReplay} or {@link LiveData#observeForeverReplay}.
+ * Both arrays are allocated up front, so recording a value is two array stores and, with a TTL,
+ * one clock read. Only used on the main thread.
+ */
+final class ReplayBuffer {
+
+    private final Object[] mValues;
+    private final long[] mTimes;
+    private final long mTtlMillis;
+    private int mHead;
+    private int mSize;
+
+    /**
+     * @param capacity  The number of values kept
+     * @param ttlMillis How long a value is kept, 0 or less to keep it until it is overwritten
+     */
+    ReplayBuffer(int capacity, long ttlMillis) {
+        mValues = new Object[capacity];
+        mTimes = ttlMillis > 0 ? new long[capacity] : null;
+        mTtlMillis = ttlMillis;
+    }
+
+    void add(Object value) {
+        int index = (mHead + mSize) % mValues.length;
+        if (mSize == mValues.length) {
+            mHead = (mHead + 1) % mValues.length;
+        } else {
+            mSize++;
+        }
+        mValues[index] = value;
+        if (mTimes != null) {
+            mTimes[index] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    /**
+     * @return the values that have not expired, oldest first; a copy, so observers may publish
+     * while it is being replayed
+     */
+    Object[] snapshot() {
+        int skip = 0;
+        if (mTimes != null) {
+            long oldest = SystemClock.elapsedRealtime() - mTtlMillis;
+            while (skip < mSize && mTimes[(mHead + skip) % mValues.length] < oldest) {
+                skip++;
+            }
+        }
+        Object[] values = new Object[mSize - skip];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mValues[(mHead + skip + i) % mValues.length];
+        }
+        return values;
+    }
+
+    void clear() {
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = null;
+        }
+        mHead = 0;
+        mSize = 0;
+    }
+}
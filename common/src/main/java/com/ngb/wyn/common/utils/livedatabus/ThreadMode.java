@@ -0,0 +1,34 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+/**
+ * The thread an observer's {@code onChanged} runs on.
+ * Whatever the mode, an observer bound to a lifecycle only receives values while its owner is
+ * active; for the executor based modes this is checked again right before delivery.
+ */
+public enum ThreadMode {
+
+    /**
+     * Delivered on the main thread. This is the default.
+     */
+    MAIN,
+
+    /**
+     * Delivered on the thread that published the value: synchronously inside
+     * {@link LiveData#postValue(Object)} on the calling thread, or on the main thread for
+     * {@link LiveData#setValue(Object)}. The observer must be thread safe and fast, since it
+     * blocks the publisher.
+     */
+    POSTING,
+
+    /**
+     * Delivered on a shared background pool. Values may be delivered concurrently and out of
+     * order.
+     */
+    BACKGROUND,
+
+    /**
+     * Delivered one at a time and in publish order, off the main thread, on an executor owned by
+     * this subscription.
+     */
+    SERIAL
+}
@@ -0,0 +1,71 @@
+package com.ngb.wyn.common;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Small timing and allocation helpers for benchmarks written as local unit tests. They are skipped
+ * unless the build is run with {@code -Pbenchmark}, for example
+ * {@code ./gradlew :common:testDebugUnitTest -Pbenchmark}, and print their results instead of
+ * asserting on them. The numbers come from the host JVM, not from ART on a device, so they are
+ * only good for comparing two code paths measured in the same run.
+ */
+public final class Benchmark {
+
+    private Benchmark() {
+    }
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public static void assumeEnabled() {
+        Assume.assumeTrue("run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * @return the median wall time of {@code runs} runs, in nanoseconds, after {@code warmup} runs
+     */
+    public static long medianNanos(int warmup, int runs, Task task) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            task.run();
+        }
+        long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    /**
+     * @return the bytes allocated by the calling thread while running the task once, -1 if the
+     * JVM cannot count them
+     */
+    public static long allocatedBytes(Task task) throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            task.run();
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            task.run();
+            return -1;
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        task.run();
+        return allocationBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    public static void report(String name, String format, Object... args) {
+        System.out.println("[benchmark] " + name + ": " + String.format(Locale.US, format, args));
+    }
+}
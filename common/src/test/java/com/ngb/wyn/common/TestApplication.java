@@ -0,0 +1,21 @@
+package com.ngb.wyn.common;
+
+import android.content.pm.ApplicationInfo;
+
+/**
+ * LogUtil asks the application whether it is debuggable, local unit tests have no application
+ * unless this one is installed.
+ */
+public class TestApplication extends BaseApplication {
+
+    public static void install() {
+        if (getContext() == null) {
+            new TestApplication().attachBaseContext(null);
+        }
+    }
+
+    @Override
+    public ApplicationInfo getApplicationInfo() {
+        return new ApplicationInfo();
+    }
+}
@@ -0,0 +1,175 @@
+package com.ngb.wyn.common.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.ngb.wyn.common.Benchmark;
+import com.ngb.wyn.common.TestApplication;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class FileUtilTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestApplication.install();
+    }
+
+    @Test
+    public void fileToByteExactReadsWholeFile() throws IOException {
+        byte[] data = randomBytes(100 * 1024 + 3);
+        File file = write("data.bin", data);
+        assertArrayEquals(data, FileUtil.fileToByteExact(file.getPath()));
+        assertArrayEquals(new byte[0], FileUtil.fileToByteExact(write("empty.bin", new byte[0]).getPath()));
+        assertNull(FileUtil.fileToByteExact(new File(mFolder.getRoot(), "missing").getPath()));
+    }
+
+    @Test
+    public void readFileBufferSmallAndMapped() throws IOException {
+        for (int size : new int[]{10, 64 * 1024, 1024 * 1024}) {
+            byte[] data = randomBytes(size);
+            File file = write("data" + size + ".bin", data);
+            ByteBuffer buffer = FileUtil.readFileBuffer(file.getPath());
+            assertNotNull(buffer);
+            assertTrue(buffer.isReadOnly());
+            assertEquals(0, buffer.position());
+            assertEquals(size, buffer.limit());
+            byte[] read = new byte[size];
+            buffer.get(read);
+            assertArrayEquals(data, read);
+        }
+    }
+
+    @Test
+    public void saveByteBufferWritesRemaining() throws IOException {
+        byte[] data = randomBytes(5000);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(100);
+        String path = new File(mFolder.getRoot(), "saved.bin").getPath();
+        assertTrue(FileUtil.saveByteBuffer(path, buffer, true));
+        assertFalse(buffer.hasRemaining());
+        byte[] expected = new byte[data.length - 100];
+        System.arraycopy(data, 100, expected, 0, expected.length);
+        assertArrayEquals(expected, FileUtil.fileToByteExact(path));
+    }
+
+    @Test
+    public void copyFileCopiesAndOverwrites() throws IOException {
+        byte[] data = randomBytes(3 * 1024 * 1024 + 1);
+        File src = write("src.bin", data);
+        File dest = write("dest.bin", randomBytes(10 * 1024 * 1024));
+        assertTrue(FileUtil.copyFile(src, dest));
+        assertArrayEquals(data, FileUtil.fileToByteExact(dest.getPath()));
+
+        File nested = new File(mFolder.getRoot(), "a/b/copy.bin");
+        assertTrue(FileUtil.copyFile(src, nested));
+        assertArrayEquals(data, FileUtil.fileToByteExact(nested.getPath()));
+    }
+
+    @Test
+    public void copyFileOntoItselfKeepsContent() throws IOException {
+        byte[] data = randomBytes(4096);
+        File src = write("self.bin", data);
+        File sameViaDots = new File(mFolder.getRoot(), "sub/../self.bin");
+        new File(mFolder.getRoot(), "sub").mkdir();
+
+        assertTrue(FileUtil.copyFile(src, src));
+        assertTrue(FileUtil.copyFile(src, sameViaDots));
+        assertArrayEquals(data, FileUtil.fileToByteExact(src.getPath()));
+        assertFalse(FileUtil.copyFile(new File(mFolder.getRoot(), "missing"), new File(mFolder.getRoot(), "missing")));
+    }
+
+    /**
+     * 1KB到200MB的文件，对比fileToByte与fileToByteExact、readFileBuffer的耗时和堆分配，
+     * 以及fileToByte+byteToFile与copyFile的复制，-Pbenchmark时运行。
+     * mmap的页在访问时才读入，所以每种读取都访问一遍每一页
+     */
+    @Test
+    public void benchmarkReadAndCopy() throws Exception {
+        Benchmark.assumeEnabled();
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        for (int size : new int[]{1024, 64 * 1024, 1024 * 1024, 16 * 1024 * 1024, 200 * 1024 * 1024}) {
+            final String path = write("bench" + size + ".bin", randomBytes(size)).getPath();
+            final String copyPath = new File(mFolder.getRoot(), "benchCopy.bin").getPath();
+            int runs = size > 1024 * 1024 ? 3 : 101;
+            //ByteArrayOutputStream扩容和toByteArray时峰值约为文件的3倍
+            if (size * 4L < maxMemory) {
+                report(size, "fileToByte", runs, new Benchmark.Task() {
+                    @Override
+                    public void run() {
+                        sum(ByteBuffer.wrap(FileUtil.fileToByte(path)));
+                    }
+                });
+                report(size, "fileToByte+byteToFile", runs, new Benchmark.Task() {
+                    @Override
+                    public void run() {
+                        assertNotNull(FileUtil.byteToFile(FileUtil.fileToByte(path), copyPath, true));
+                    }
+                });
+            }
+            report(size, "fileToByteExact", runs, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    sum(ByteBuffer.wrap(FileUtil.fileToByteExact(path)));
+                }
+            });
+            report(size, "readFileBuffer", runs, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    sum(FileUtil.readFileBuffer(path));
+                }
+            });
+            report(size, "copyFile", runs, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    assertTrue(FileUtil.copyFile(new File(path), new File(copyPath)));
+                }
+            });
+            new File(path).delete();
+        }
+    }
+
+    private static void report(int size, String name, int runs, Benchmark.Task task) throws Exception {
+        long nanos = Benchmark.medianNanos(runs / 10 + 1, runs, task);
+        long allocated = Benchmark.allocatedBytes(task);
+        Benchmark.report(name + " " + size + "B", "%.3f ms, %d bytes allocated", nanos / 1e6, allocated);
+    }
+
+    /**
+     * 每4KB读一个字节，使mmap的每一页都被读入，又不让逐字节遍历的耗时掩盖读取本身
+     */
+    private static long sum(ByteBuffer buffer) {
+        long sum = 0;
+        for (int i = 0; i < buffer.limit(); i += 4096) {
+            sum += buffer.get(i);
+        }
+        return sum;
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(mFolder.getRoot(), name);
+        assertTrue(FileUtil.saveByteBuffer(file.getPath(), ByteBuffer.wrap(data), true));
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
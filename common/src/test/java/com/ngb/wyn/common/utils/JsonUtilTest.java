@@ -0,0 +1,123 @@
+package com.ngb.wyn.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.ngb.wyn.common.TestApplication;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class JsonUtilTest {
+    private static final String[] DOCUMENTS = {
+            "{}",
+            "[]",
+            "{\"a\":1,\"b\":-2.5,\"c\":true,\"d\":false,\"e\":null}",
+            "[1, 2.0, 1e3, 9007199254740993, true, null, \"\"]",
+            "{\"s\":\"hello world\",\"u\":\"\\u4e2d\\u6587/\\\"q\\\"\",\"t\":\"a\\tb\\nc\"}",
+            "{\"nested\":{\"list\":[{\"k\":\"v w\"},[],{}],\"n\":0},\"x\":[[1],[\"&=?\"]]}",
+            " [ { \"id\" : 7 , \"tags\" : [ \"a b\" , \"c+d\" ] } ] ",
+            "{\"payload\":\"{\\\"inner\\\":[1,\\\"x y\\\"]}\",\"list\":\"[true]\"}",
+            "[\"[]\",\"{}\",\"[{\\\"a\\\":null}]\"]",
+    };
+
+    @BeforeClass
+    public static void installApplication() {
+        TestApplication.install();
+    }
+
+    @Test
+    public void compressJsonMatchesLegacyOutput() throws JSONException {
+        for (String document : DOCUMENTS) {
+            for (boolean isEncode : new boolean[]{false, true}) {
+                assertEquals(document + " encode=" + isEncode,
+                        LegacyJsonUtil.compressJson(document, isEncode), JsonUtil.compressJson(document, isEncode));
+            }
+        }
+    }
+
+    @Test
+    public void compressJsonStringifiesPrimitives() throws JSONException {
+        assertEquals("{\"a\":\"1\",\"b\":\"true\",\"c\":\"null\"}",
+                JsonUtil.compressJson("{\"a\":1,\"b\":true,\"c\":null}", false));
+    }
+
+    @Test
+    public void compressDomMatchesLegacyOutput() throws JSONException {
+        for (String document : DOCUMENTS) {
+            for (boolean isEncode : new boolean[]{false, true}) {
+                Object value = new JSONTokener(document).nextValue();
+                if (value instanceof JSONObject) {
+                    assertEquals(LegacyJsonUtil.compressJsonObject((JSONObject) value, isEncode),
+                            JsonUtil.compressJsonObject((JSONObject) value, isEncode));
+                } else {
+                    assertEquals(LegacyJsonUtil.compressJsonArray((JSONArray) value, isEncode),
+                            JsonUtil.compressJsonArray((JSONArray) value, isEncode));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compressExpandsStringsThatHoldJson() throws JSONException {
+        assertEquals("{\"p\":{\"k\":[\"1\"]}}", JsonUtil.compressJson("{\"p\":\"{\\\"k\\\":[1]}\"}", false));
+    }
+
+    @Test
+    public void compressFailsOnStringThatLooksLikeBrokenJson() {
+        try {
+            JsonUtil.compressJson("{\"p\":\"{broken\"}", false);
+            fail();
+        } catch (JSONException expected) {
+            //期望抛出
+        }
+    }
+
+    @Test
+    public void compressOnlyParsesStringsThatStartLikeContainers() throws JSONException {
+        //不以{或[开头的字符串直接作为值输出，原先按JSON解析失败会抛出异常
+        assertEquals("{\"p\":\"/a/b\",\"q\":\"}x\",\"r\":\"\\\"open\"}",
+                JsonUtil.compressJson("{\"p\":\"/a/b\",\"q\":\"}x\",\"r\":\"\\\"open\"}", false));
+        JSONArray array = new JSONArray();
+        array.put(1.5);
+        array.put(false);
+        array.put(JSONObject.NULL);
+        array.put(" [1] ");
+        assertEquals("[\"1.5\",\"false\",\"null\",[\"1\"]]", JsonUtil.compressJsonArray(array, false));
+    }
+
+    @Test
+    public void isJsonObjectAndArrayStayLenient() {
+        assertTrue(JsonUtil.isJsonObject("{a:1}"));
+        assertTrue(JsonUtil.isJsonObject("{\"a\":1} trailing"));
+        assertTrue(JsonUtil.isJsonArray("['x',]"));
+        assertFalse(JsonUtil.isJsonObject("[1]"));
+        assertFalse(JsonUtil.isJsonArray("{}"));
+        assertFalse(JsonUtil.isJsonObject("{\"a\":"));
+    }
+
+    @Test
+    public void isValidValueMatchesLegacy() {
+        for (String value : new String[]{"", " ", "1", "true", "null", "abc", "\"q\"", "{}", "[1]", "{x", "\"open"}) {
+            assertEquals(value, LegacyJsonUtil.isValidValue(value), JsonUtil.isValidValue(value));
+        }
+    }
+
+    @Test
+    public void compressJsonRejectsNonContainers() {
+        for (String text : new String[]{"", "  ", "\"text\"", "12", "{\"a\":"}) {
+            try {
+                JsonUtil.compressJson(text, false);
+                fail("expected failure for " + text);
+            } catch (JSONException expected) {
+                //期望抛出
+            }
+        }
+    }
+}
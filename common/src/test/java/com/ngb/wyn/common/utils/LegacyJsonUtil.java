@@ -0,0 +1,118 @@
+package com.ngb.wyn.common.utils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONStringer;
+import org.json.JSONTokener;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Iterator;
+
+/**
+ * 重写前的JsonUtil压缩实现，作为对比基准
+ * Android的JSONObject.getString会把任意值转成字符串，JVM上的org.json只接受字符串，这里用String.valueOf保持Android上的行为
+ */
+final class LegacyJsonUtil {
+
+    private LegacyJsonUtil() {
+    }
+
+    static boolean isJsonObject(String jsonString) {
+        try {
+            return new JSONTokener(jsonString).nextValue() instanceof JSONObject;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    static boolean isJsonArray(String jsonString) {
+        try {
+            return new JSONTokener(jsonString).nextValue() instanceof JSONArray;
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    static boolean isValidValue(String valueString) {
+        try {
+            if (valueString.equals("")) {
+                return true;
+            }
+            Object object = new JSONTokener(valueString).nextValue();
+            return !(object instanceof JSONArray) && !(object instanceof JSONObject);
+        } catch (JSONException e) {
+            return false;
+        }
+    }
+
+    static String compressJson(String jsonString, boolean isEncode) throws JSONException {
+        return compressJson(jsonString, null, isEncode).toString();
+    }
+
+    static String compressJsonObject(JSONObject jsonObject, boolean isEncode) throws JSONException {
+        return compressJsonObject(jsonObject, null, isEncode).toString();
+    }
+
+    static String compressJsonArray(JSONArray jsonArray, boolean isEncode) throws JSONException {
+        return compressJsonArray(jsonArray, null, isEncode).toString();
+    }
+
+    private static JSONStringer compressJson(String jsonString, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
+        if (isJsonObject(jsonString)) {
+            return compressJsonObject(new JSONObject(jsonString), jsonStringer, isEncode);
+        } else if (isJsonArray(jsonString)) {
+            return compressJsonArray(new JSONArray(jsonString), jsonStringer, isEncode);
+        }
+        throw new JSONException("Unsupported json type, only for JSONArray or JSONObject.");
+    }
+
+    private static JSONStringer compressJsonArray(JSONArray jsonArray, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
+        if (jsonStringer == null) {
+            jsonStringer = new JSONStringer();
+        }
+        jsonStringer.array();
+        for (int i = 0; i < jsonArray.length(); i++) {
+            String value = jsonArray.get(i).toString();
+            if (isValidValue(value)) {
+                jsonStringer.value(encode(value, isEncode));
+            } else {
+                compressJson(value, jsonStringer, isEncode);
+            }
+        }
+        jsonStringer.endArray();
+        return jsonStringer;
+    }
+
+    private static JSONStringer compressJsonObject(JSONObject jsonObject, JSONStringer jsonStringer, boolean isEncode) throws JSONException {
+        if (jsonStringer == null) {
+            jsonStringer = new JSONStringer();
+        }
+        jsonStringer.object();
+        Iterator<String> iterator = jsonObject.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            String value = String.valueOf(jsonObject.get(key));
+            jsonStringer.key(key);
+            if (isValidValue(value)) {
+                jsonStringer.value(encode(value, isEncode));
+            } else {
+                compressJson(value, jsonStringer, isEncode);
+            }
+        }
+        jsonStringer.endObject();
+        return jsonStringer;
+    }
+
+    private static String encode(String value, boolean isEncode) {
+        if (!isEncode) {
+            return value;
+        }
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
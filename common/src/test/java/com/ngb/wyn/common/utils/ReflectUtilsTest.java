@@ -0,0 +1,264 @@
+package com.ngb.wyn.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ReflectUtilsTest {
+
+    @After
+    public void tearDown() {
+        ReflectUtils.clearCache();
+    }
+
+    @Test
+    public void readsAndWritesPrivateAndInheritedFields() {
+        Child child = new Child();
+        ReflectUtils reflect = ReflectUtils.reflect(child);
+        assertEquals("base", reflect.field("baseName").get());
+        assertEquals(Integer.valueOf(1), reflect.field("count").get());
+        reflect.field("count", 5).field("baseName", "changed");
+        assertEquals(5, child.count);
+        assertEquals("changed", child.getBaseName());
+        //第二次走缓存
+        reflect.field("count", 6);
+        assertEquals(6, child.count);
+    }
+
+    @Test
+    public void writesFinalInstanceField() {
+        Child child = new Child();
+        ReflectUtils.reflect(child).field("id", "new");
+        assertEquals("new", ReflectUtils.reflect(child).field("id").get());
+    }
+
+    @Test
+    public void picksMostSpecificOverloadFromArgumentTypes() {
+        ReflectUtils reflect = ReflectUtils.reflect(new Child());
+        for (int i = 0; i < 2; i++) {
+            assertEquals("string", reflect.method("describe", "x").get());
+            assertEquals("object", reflect.method("describe", 1.5).get());
+            assertEquals("int", reflect.method("describe", 3).get());
+            assertEquals("base", reflect.method("inherited").get());
+        }
+    }
+
+    @Test
+    public void cacheIsKeyedByType() {
+        assertEquals("child", ReflectUtils.reflect(new Child()).method("name").get());
+        assertEquals("other", ReflectUtils.reflect(new Other()).method("name").get());
+        assertEquals("child", ReflectUtils.reflect(new Child()).method("name").get());
+    }
+
+    @Test
+    public void voidMethodReturnsReceiver() {
+        Child child = new Child();
+        assertSame(child, ReflectUtils.reflect(child).method("increment").get());
+        assertEquals(2, child.count);
+    }
+
+    @Test
+    public void missesFailEveryTime() {
+        ReflectUtils reflect = ReflectUtils.reflect(new Child());
+        for (int i = 0; i < 2; i++) {
+            try {
+                reflect.method("missing", 1);
+                fail();
+            } catch (ReflectUtils.ReflectException expected) {
+                //期望抛出
+            }
+            try {
+                reflect.field("missing");
+                fail();
+            } catch (ReflectUtils.ReflectException expected) {
+                //期望抛出
+            }
+        }
+    }
+
+    @Test
+    public void newInstanceMatchesConstructorArguments() {
+        Child byDefault = ReflectUtils.reflect(Child.class).newInstance().get();
+        assertEquals(1, byDefault.count);
+        Child byCount = ReflectUtils.reflect(Child.class).newInstance(9).get();
+        assertEquals(9, byCount.count);
+        Child byName = ReflectUtils.reflect(Child.class.getName()).newInstance("n").get();
+        assertEquals("n", byName.getBaseName());
+    }
+
+    @Test
+    public void invokerIsResolvedOnceAndReusable() {
+        Child child = new Child();
+        ReflectUtils.Invoker<String> invoker = ReflectUtils.reflect(child).invoker("describe", String.class);
+        assertEquals("string", invoker.invoke(child, "x"));
+        assertSame(invoker.getMethod(), ReflectUtils.reflect(child).<String>invoker("describe", String.class).getMethod());
+        ReflectUtils.Invoker<Void> noArgs = ReflectUtils.reflect(child).invoker("increment", (Class<?>[]) null);
+        noArgs.invoke(child);
+        assertEquals(2, child.count);
+    }
+
+    @Test
+    public void invokerUnaffectedByCallerChangingTypes() {
+        Child child = new Child();
+        Class<?>[] types = {String.class};
+        ReflectUtils.reflect(child).invoker("describe", types);
+        //修改调用方的数组不能影响已缓存的key
+        types[0] = int.class;
+        assertEquals("string", ReflectUtils.reflect(child).<String>invoker("describe", String.class).invoke(child, "x"));
+        assertEquals("int", ReflectUtils.reflect(child).<String>invoker("describe", int.class).invoke(child, 1));
+    }
+
+    @Test
+    public void fieldGetterReadsPrimitivesWithoutLookup() {
+        Child child = new Child();
+        ReflectUtils.FieldGetter<Integer> getter = ReflectUtils.reflect(child).fieldGetter("count");
+        assertEquals(1, getter.getInt(child));
+        child.count = 4;
+        assertEquals(4, getter.getInt(child));
+        assertEquals(Integer.valueOf(4), getter.get(child));
+    }
+
+    @Test
+    public void proxyCallsMatchingMethods() {
+        Child child = new Child();
+        ChildView view = ReflectUtils.reflect(child).proxy(ChildView.class);
+        for (int i = 0; i < 2; i++) {
+            assertEquals("child", view.name());
+            assertEquals("string", view.describe("x"));
+        }
+        view.increment();
+        assertEquals(2, child.count);
+    }
+
+    @Test
+    public void proxyReusesResolvedTarget() throws Exception {
+        Child child = new Child();
+        ChildView view = ReflectUtils.reflect(child).proxy(ChildView.class);
+        ReflectUtils.ProxyHandler handler = (ReflectUtils.ProxyHandler) Proxy.getInvocationHandler(view);
+        Method name = ChildView.class.getMethod("name");
+        assertEquals("child", view.name());
+        ReflectUtils.ProxyTarget resolved = handler.resolve(name);
+        //清空全局缓存后，处理器仍使用第一次解析的结果
+        ReflectUtils.clearCache();
+        assertEquals("child", view.name());
+        assertSame(resolved, handler.resolve(name));
+    }
+
+    @Test
+    public void proxyFallsBackToRuntimeArgumentTypes() {
+        Child child = new Child();
+        ChildView view = ReflectUtils.reflect(child).proxy(ChildView.class);
+        //接口声明的是setLabel(Object)，实际只有setLabel(String)
+        view.setLabel("first");
+        assertEquals("first", child.label);
+        view.setLabel("second");
+        assertEquals("second", child.label);
+        try {
+            view.setLabel(1);
+            fail();
+        } catch (ReflectUtils.ReflectException expected) {
+            //期望抛出
+        }
+    }
+
+    @Test
+    public void proxyReadsAndWritesMapProperties() {
+        Map<String, Object> map = new HashMap<>();
+        MapView view = ReflectUtils.reflect(map).proxy(MapView.class);
+        view.setTitle("t");
+        view.setVisible(true);
+        assertEquals("t", map.get("title"));
+        assertEquals("t", view.getTitle());
+        assertEquals(Boolean.TRUE, view.isVisible());
+        assertEquals(2, view.size());
+    }
+
+    interface ChildView {
+        String name();
+
+        String describe(String value);
+
+        void increment();
+
+        void setLabel(Object label);
+    }
+
+    interface MapView {
+        void setTitle(Object title);
+
+        Object getTitle();
+
+        void setVisible(boolean visible);
+
+        Boolean isVisible();
+
+        int size();
+    }
+
+    static class Base {
+        private String baseName = "base";
+
+        String getBaseName() {
+            return baseName;
+        }
+
+        private String inherited() {
+            return "base";
+        }
+    }
+
+    static class Child extends Base {
+        private final String id = String.valueOf(System.nanoTime());
+        private int count = 1;
+        private String label;
+
+        Child() {
+        }
+
+        private Child(int count) {
+            this.count = count;
+        }
+
+        private Child(String name) {
+            ReflectUtils.reflect(this).field("baseName", name);
+        }
+
+        private String name() {
+            return "child";
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        private void increment() {
+            count++;
+        }
+
+        private String describe(Object value) {
+            return "object";
+        }
+
+        private String describe(String value) {
+            return "string";
+        }
+
+        private String describe(int value) {
+            return "int";
+        }
+    }
+
+    static class Other {
+        private String name() {
+            return "other";
+        }
+    }
+}
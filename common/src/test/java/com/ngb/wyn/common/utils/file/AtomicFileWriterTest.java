@@ -0,0 +1,234 @@
+package com.ngb.wyn.common.utils.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.ngb.wyn.common.TestApplication;
+import com.ngb.wyn.common.utils.FileUtil;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AtomicFileWriterTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestApplication.install();
+    }
+
+    @Test
+    public void followersShareLeaderSync() throws Exception {
+        //窗口足够长，批次只能因写满而提交
+        RecordingWriter writer = new RecordingWriter(10000, 3);
+        File dir = mFolder.newFolder("shared");
+        long start = System.currentTimeMillis();
+        List<Boolean> results = writeConcurrently(writer, dir, dir, dir);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(Arrays.asList(true, true, true), results);
+        assertEquals(1, writer.batches().size());
+        assertEquals(Arrays.asList(dir), writer.batches().get(0));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("content" + i, read(new File(dir, "file" + i)));
+        }
+    }
+
+    @Test
+    public void leaderCommitsWhenWindowEnds() throws Exception {
+        RecordingWriter writer = new RecordingWriter(200, 10);
+        File dir = mFolder.newFolder("window");
+        long start = System.currentTimeMillis();
+        assertTrue(writer.writeGrouped(new File(dir, "a"), bytes("a")));
+        assertTrue(System.currentTimeMillis() - start >= 150);
+        //上一批次已提交，下一次写入开始新的批次
+        assertTrue(writer.writeGrouped(new File(dir, "b"), bytes("b")));
+        assertEquals(2, writer.mSyncCount.get());
+    }
+
+    @Test
+    public void batchNeverExceedsMaxSize() throws Exception {
+        for (int round = 0; round < 5; round++) {
+            RecordingWriter writer = new RecordingWriter(100, 3);
+            File[] dirs = new File[20];
+            for (int i = 0; i < dirs.length; i++) {
+                dirs[i] = mFolder.newFolder("cap" + round + "-" + i);
+            }
+            List<Boolean> results = writeConcurrently(writer, dirs);
+            int synced = 0;
+            for (List<File> batch : writer.batches()) {
+                assertTrue("batch of " + batch.size(), batch.size() <= 3);
+                synced += batch.size();
+            }
+            assertEquals(dirs.length, synced);
+            assertFalse(results.contains(false));
+        }
+    }
+
+    @Test
+    public void eachDirectoryIsSyncedOncePerBatch() throws Exception {
+        RecordingWriter writer = new RecordingWriter(10000, 4);
+        File first = mFolder.newFolder("first");
+        File second = mFolder.newFolder("second");
+        List<Boolean> results = writeConcurrently(writer, first, second, first, second);
+        assertEquals(Arrays.asList(true, true, true, true), results);
+        assertEquals(1, writer.batches().size());
+        List<File> batch = writer.batches().get(0);
+        assertEquals(2, batch.size());
+        assertTrue(batch.contains(first));
+        assertTrue(batch.contains(second));
+    }
+
+    @Test
+    public void eachWaiterGetsResultOfItsDirectory() throws Exception {
+        RecordingWriter writer = new RecordingWriter(10000, 4);
+        File good = mFolder.newFolder("good");
+        File bad = mFolder.newFolder("bad");
+        writer.mFailingDir = bad;
+        List<Boolean> results = writeConcurrently(writer, good, bad, good, bad);
+        //同一批次中，只有目录fsync失败的写入返回false
+        assertEquals(Arrays.asList(true, false, true, false), results);
+        assertEquals(1, writer.batches().size());
+    }
+
+    @Test
+    public void staleTempFilesAreDeletedBeforeFirstWrite() throws IOException {
+        File dir = mFolder.newFolder("stale");
+        File target = new File(dir, "data.json");
+        File stale = touch(dir, ".data.json-123.tmp");
+        File negative = touch(dir, ".data.json--45.tmp");
+        //不是本类生成的临时文件，保留
+        File other = touch(dir, ".data.json-x.tmp");
+        File otherTarget = touch(dir, ".data.json.bak-1.tmp");
+        assertTrue(AtomicFileWriter.write(target, bytes("new")));
+        assertFalse(stale.exists());
+        assertFalse(negative.exists());
+        assertTrue(other.exists());
+        assertTrue(otherTarget.exists());
+        assertEquals("new", read(target));
+        List<String> names = Arrays.asList(dir.list());
+        assertEquals(3, names.size());
+    }
+
+    @Test
+    public void tempFileNameMatchesCreateTempFile() throws IOException {
+        File dir = mFolder.newFolder("names");
+        String prefix = ".a.txt-";
+        File temp = File.createTempFile(prefix, ".tmp", dir);
+        assertTrue(AtomicFileWriter.isTempFileName(temp.getName(), prefix));
+        assertTrue(AtomicFileWriter.isTempFileName(".a.txt--7.tmp", prefix));
+        assertFalse(AtomicFileWriter.isTempFileName(".a.txt-.tmp", prefix));
+        assertFalse(AtomicFileWriter.isTempFileName(".a.txt--.tmp", prefix));
+        assertFalse(AtomicFileWriter.isTempFileName(".a.txt-1.tmp.bak", prefix));
+        assertFalse(AtomicFileWriter.isTempFileName("a.txt-1.tmp", prefix));
+    }
+
+    /**
+     * 每个目录写一个文件，所有线程同时开始
+     *
+     * @return 按dirs顺序的写入结果
+     */
+    private static List<Boolean> writeConcurrently(final AtomicFileWriter writer, File... dirs)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(dirs.length);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < dirs.length; i++) {
+                final File file = new File(dirs[i], "file" + i);
+                final byte[] content = bytes("content" + i);
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        start.await();
+                        return writer.writeGrouped(file, content);
+                    }
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(File file) {
+        return new String(FileUtil.fileToByteExact(file.getPath()), StandardCharsets.UTF_8);
+    }
+
+    private static File touch(File dir, String name) throws IOException {
+        File file = new File(dir, name);
+        new FileOutputStream(file).close();
+        return file;
+    }
+
+    /**
+     * 记录每个批次fsync的目录，批次由提交它的领导线程区分，同一线程多次领导的批次会合并，只用于每个线程写一次的用例
+     */
+    private static class RecordingWriter extends AtomicFileWriter {
+        private final Map<Thread, List<File>> mBatches = new HashMap<>();
+        private final List<Thread> mOrder = new ArrayList<>();
+        final AtomicInteger mSyncCount = new AtomicInteger();
+        volatile File mFailingDir;
+
+        RecordingWriter(long windowMillis, int maxBatchSize) {
+            super(windowMillis, maxBatchSize);
+        }
+
+        @Override
+        void syncBatchDirectory(File dir) throws IOException {
+            mSyncCount.incrementAndGet();
+            Thread thread = Thread.currentThread();
+            synchronized (mBatches) {
+                List<File> batch = mBatches.get(thread);
+                if (batch == null) {
+                    batch = new ArrayList<>();
+                    mBatches.put(thread, batch);
+                    mOrder.add(thread);
+                }
+                batch.add(dir);
+            }
+            if (dir.equals(mFailingDir)) {
+                throw new IOException("sync fail: " + dir);
+            }
+        }
+
+        List<List<File>> batches() {
+            synchronized (mBatches) {
+                List<List<File>> batches = new ArrayList<>();
+                for (Thread thread : mOrder) {
+                    batches.add(mBatches.get(thread));
+                }
+                return batches;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.ngb.wyn.common.utils.file;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+public class Crc32CombineTest {
+
+    @Test
+    public void combineEqualsCrcOfConcatenation() {
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        long whole = crc(data, 0, data.length);
+        for (int split : new int[]{0, 1, 7, 4096, 65537, data.length - 1, data.length}) {
+            long crc1 = crc(data, 0, split);
+            long crc2 = crc(data, split, data.length - split);
+            assertEquals("split at " + split, whole, Crc32Combine.combine(crc1, crc2, data.length - split));
+        }
+    }
+
+    @Test
+    public void combineManySegmentsInOrder() {
+        byte[] data = new byte[1 << 20];
+        new Random(2).nextBytes(data);
+        int segment = 128 * 1024 + 3;
+        long combined = 0;
+        for (int start = 0; start < data.length; start += segment) {
+            int len = Math.min(segment, data.length - start);
+            combined = Crc32Combine.combine(combined, crc(data, start, len), len);
+        }
+        assertEquals(crc(data, 0, data.length), combined);
+    }
+
+    @Test
+    public void emptySecondSegmentKeepsFirstCrc() {
+        assertEquals(0x12345678L, Crc32Combine.combine(0x12345678L, 0, 0));
+    }
+
+    private static long crc(byte[] data, int off, int len) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, off, len);
+        return crc32.getValue();
+    }
+}
@@ -0,0 +1,104 @@
+package com.ngb.wyn.common.utils.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.ngb.wyn.common.TestApplication;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+public class FileDigestTest {
+    private File mFile;
+
+    @BeforeClass
+    public static void installApplication() {
+        TestApplication.install();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("digest", ".bin");
+        FileDigest.clearCache();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void crc32ParallelMatchesSerialCrc() throws IOException {
+        //覆盖不足一个分段、刚好整除和带尾巴的长度
+        for (int length : new int[]{0, 1000, 8 * 1024 * 1024, 13 * 1024 * 1024 + 17}) {
+            byte[] data = write(length, length);
+            CRC32 crc32 = new CRC32();
+            crc32.update(data);
+            String expected = String.format("%08x", crc32.getValue());
+            assertEquals("length " + length, expected, FileDigest.crc32Parallel(mFile, 4));
+            assertEquals("length " + length, expected, FileDigest.digestNoCache(mFile, FileDigest.Algorithm.CRC32));
+        }
+    }
+
+    @Test
+    public void messageDigestsMatchJdk() throws Exception {
+        byte[] data = write(300000, 7);
+        assertEquals(FileDigest.toHex(MessageDigest.getInstance("SHA-256").digest(data)),
+                FileDigest.digest(mFile, FileDigest.Algorithm.SHA_256));
+        assertEquals(FileDigest.toHex(MessageDigest.getInstance("MD5").digest(data)),
+                FileDigest.digest(mFile, FileDigest.Algorithm.MD5));
+    }
+
+    @Test
+    public void digestCacheIsInvalidatedByLengthChange() throws IOException {
+        write(1000, 1);
+        String first = FileDigest.digest(mFile, FileDigest.Algorithm.MD5);
+        assertEquals(first, FileDigest.digest(mFile, FileDigest.Algorithm.MD5));
+        write(1001, 1);
+        assertFalse(first.equals(FileDigest.digest(mFile, FileDigest.Algorithm.MD5)));
+    }
+
+    @Test
+    public void sessionReadsOnlyAppendedBytes() throws Exception {
+        byte[] data = new byte[200000];
+        new Random(3).nextBytes(data);
+        FileDigest.Session session = FileDigest.newSession(FileDigest.Algorithm.SHA_256);
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(data, 0, 50000);
+        }
+        assertTrue(session.update(mFile));
+        try (FileOutputStream out = new FileOutputStream(mFile, true)) {
+            out.write(data, 50000, data.length - 50000);
+        }
+        assertTrue(session.update(mFile));
+        assertEquals(FileDigest.toHex(MessageDigest.getInstance("SHA-256").digest(data)), session.digest());
+    }
+
+    @Test
+    public void sessionRejectsTruncatedFile() throws IOException {
+        write(1000, 1);
+        FileDigest.Session session = FileDigest.newSession(FileDigest.Algorithm.CRC32);
+        assertTrue(session.update(mFile));
+        write(10, 1);
+        assertFalse(session.update(mFile));
+    }
+
+    private byte[] write(int length, long seed) throws IOException {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(data);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ngb.wyn.common.utils.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.signature.EmptySignature;
+import com.bumptech.glide.util.Util;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+public class GlideKeyResolverTest {
+    private static final List<String> URLS = Arrays.asList(
+            "https://img.example.com/a.webp",
+            "https://img.example.com/b.jpg?w=200&h=200",
+            "http://cdn.example.com/%E4%B8%AD%E6%96%87.png",
+            "https://img.example.com/a.webp");
+
+    @BeforeClass
+    public static void setUpUserAgent() {
+        //Glide Headers静态初始化读取http.agent，JVM上默认没有
+        if (System.getProperty("http.agent") == null) {
+            System.setProperty("http.agent", "junit");
+        }
+    }
+
+    @Test
+    public void safeKeyMatchesGlideDiskCacheKey() throws Exception {
+        for (String url : URLS) {
+            assertEquals(url, glideSafeKey(url), GlideKeyResolver.getSafeKey(url));
+            //第二次走缓存（或重新计算），结果必须一致
+            assertEquals(url, glideSafeKey(url), GlideKeyResolver.getSafeKey(url));
+        }
+    }
+
+    @Test
+    public void batchKeysAlignWithInput() throws Exception {
+        String[] keys = GlideKeyResolver.getSafeKeys(URLS);
+        String[] expected = new String[URLS.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = glideSafeKey(URLS.get(i));
+        }
+        assertArrayEquals(expected, keys);
+        assertEquals(keys[0], keys[3]);
+    }
+
+    /**
+     * 与Glide DataCacheKey一致的原始计算方式
+     */
+    private static String glideSafeKey(String url) throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+        EmptySignature.obtain().updateDiskCacheKey(messageDigest);
+        new GlideUrl(url).updateDiskCacheKey(messageDigest);
+        return Util.sha256BytesToHex(messageDigest.digest()) + ".0";
+    }
+}
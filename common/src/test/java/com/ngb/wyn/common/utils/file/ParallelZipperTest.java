@@ -0,0 +1,240 @@
+package com.ngb.wyn.common.utils.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.ngb.wyn.common.Benchmark;
+import com.ngb.wyn.common.TestApplication;
+import com.ngb.wyn.common.utils.FileUtil;
+
+import org.junit.BeforeClass;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class ParallelZipperTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestApplication.install();
+    }
+
+    @Test
+    public void roundTripMatchesSerialZip() throws IOException {
+        File root = createTree();
+        for (boolean keepDirStructure : new boolean[]{true, false}) {
+            if (!keepDirStructure) {
+                // flattened names would clash
+                new File(root, "a/b/same.txt").delete();
+            }
+            ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            new ParallelZipper(root, keepDirStructure).writeTo(parallel, 4);
+            ByteArrayOutputStream serial = new ByteArrayOutputStream();
+            assertTrue(FileUtil.toZip(root.getPath(), serial, keepDirStructure));
+
+            Map<String, byte[]> parallelEntries = unzip(parallel.toByteArray());
+            Map<String, byte[]> serialEntries = unzip(serial.toByteArray());
+            assertEquals(new ArrayList<>(serialEntries.keySet()), new ArrayList<>(parallelEntries.keySet()));
+            for (Map.Entry<String, byte[]> entry : serialEntries.entrySet()) {
+                assertArrayEquals(entry.getKey(), entry.getValue(), parallelEntries.get(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void singleThreadProducesSameEntries() throws IOException {
+        File root = createTree();
+        ByteArrayOutputStream one = new ByteArrayOutputStream();
+        new ParallelZipper(root, true).writeTo(one, 1);
+        ByteArrayOutputStream many = new ByteArrayOutputStream();
+        new ParallelZipper(root, true).writeTo(many, 8);
+        Map<String, byte[]> oneEntries = unzip(one.toByteArray());
+        Map<String, byte[]> manyEntries = unzip(many.toByteArray());
+        assertEquals(new ArrayList<>(oneEntries.keySet()), new ArrayList<>(manyEntries.keySet()));
+    }
+
+    @Test(expected = IOException.class)
+    public void duplicateNamesFail() throws IOException {
+        File root = createTree();
+        new ParallelZipper(root, false).writeTo(new ByteArrayOutputStream(), 2);
+    }
+
+    @Test
+    public void toZipParallelKeepsStreamOpen() throws IOException {
+        File root = createTree();
+        TrackingOutputStream out = new TrackingOutputStream();
+        assertTrue(FileUtil.toZipParallel(root.getPath(), out, true, 2));
+        assertFalse(out.mClosed);
+        assertFalse(unzip(out.toByteArray()).isEmpty());
+    }
+
+    @Test
+    public void zip64FallbackKeepsStreamOpen() throws IOException {
+        File root = mFolder.newFolder("many");
+        // one entry over the limit of the parallel path
+        for (int i = 0; i <= 0xFFFF; i++) {
+            new File(root, Integer.toString(i)).createNewFile();
+        }
+        assertFalse(new ParallelZipper(root, true).isSupported());
+        TrackingOutputStream out = new TrackingOutputStream();
+        assertTrue(FileUtil.toZipParallel(root.getPath(), out, true, 2));
+        assertFalse(out.mClosed);
+        out.write(0);
+    }
+
+    /**
+     * 串行toZip与toZipParallel的耗时对比，10000个小文件、10个大文件两种目录，-Pbenchmark时运行
+     */
+    @Test
+    public void benchmarkAgainstSerialZip() throws Exception {
+        Benchmark.assumeEnabled();
+        Random random = new Random(11);
+        File small = mFolder.newFolder("benchSmall");
+        for (int i = 0; i < 10000; i++) {
+            write(new File(small, (i % 100) + "/" + i + ".log"), text(random, 2 * 1024));
+        }
+        File large = mFolder.newFolder("benchLarge");
+        for (int i = 0; i < 10; i++) {
+            write(new File(large, i + ".bin"), text(random, 16 * 1024 * 1024));
+        }
+        final int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (final File root : new File[]{small, large}) {
+            long serial = Benchmark.medianNanos(1, 3, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    assertTrue(FileUtil.toZip(root.getPath(), new CountingOutputStream(), true));
+                }
+            });
+            long parallel = Benchmark.medianNanos(1, 3, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    assertTrue(FileUtil.toZipParallel(root.getPath(), new CountingOutputStream(), true, parallelism));
+                }
+            });
+            Benchmark.report("zip " + root.getName(), "serial %d ms, parallel(%d) %d ms, %d cpus",
+                    serial / 1000000, parallelism, parallel / 1000000, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * 16个字母组成的随机文本，压缩率与日志接近
+     */
+    private static byte[] text(Random random, int length) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + (data[i] & 0x0F));
+        }
+        return data;
+    }
+
+    private File createTree() throws IOException {
+        File root = mFolder.newFolder("src");
+        Random random = new Random(3);
+        write(new File(root, "empty.txt"), new byte[0]);
+        write(new File(root, "small.txt"), "hello".getBytes("UTF-8"));
+        byte[] large = new byte[300 * 1024 + 17];
+        random.nextBytes(large);
+        write(new File(root, "a/random.bin"), large);
+        byte[] text = new byte[1024 * 1024];
+        Arrays.fill(text, (byte) 'x');
+        write(new File(root, "a/b/text.txt"), text);
+        write(new File(root, "a/b/same.txt"), "1".getBytes("UTF-8"));
+        write(new File(root, "c/same.txt"), "2".getBytes("UTF-8"));
+        new File(root, "emptyDir").mkdirs();
+        return root;
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * ZipInputStream checks every entry's CRC and size while reading
+     */
+    static Map<String, byte[]> unzip(byte[] zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip));
+        try {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), readAll(in));
+            }
+        } finally {
+            in.close();
+        }
+        return entries;
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 只计数不保存，基准测试不受内存拷贝影响
+     */
+    private static class CountingOutputStream extends OutputStream {
+        long mCount;
+
+        @Override
+        public void write(int b) {
+            mCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            mCount += len;
+        }
+    }
+
+    private static class TrackingOutputStream extends ByteArrayOutputStream {
+        boolean mClosed;
+
+        @Override
+        public void close() throws IOException {
+            mClosed = true;
+            super.close();
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (mClosed) {
+                throw new IllegalStateException("closed");
+            }
+            super.write(b);
+        }
+    }
+}
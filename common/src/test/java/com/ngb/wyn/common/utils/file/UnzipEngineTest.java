@@ -0,0 +1,194 @@
+package com.ngb.wyn.common.utils.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.ngb.wyn.common.TestApplication;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class UnzipEngineTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        TestApplication.install();
+    }
+
+    @Test
+    public void extractsEveryEntry() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        File zip = createZip(entries, "dir/empty/");
+        File desDir = mFolder.newFolder("out");
+        final AtomicInteger finished = new AtomicInteger();
+
+        UnzipEngine.Result result = new UnzipEngine(zip, desDir)
+                .setParallelism(3)
+                .setListener(new UnzipEngine.Listener() {
+                    @Override
+                    public void onEntryProgress(String name, long written, long total) {
+                    }
+
+                    @Override
+                    public void onEntryFinished(UnzipEngine.EntryResult result) {
+                        finished.incrementAndGet();
+                    }
+                })
+                .unzip();
+
+        assertTrue(result.isSuccess());
+        assertNull(result.getError());
+        assertEquals(entries.size() + 1, result.getEntryResults().size());
+        assertEquals(entries.size(), finished.get());
+        assertTrue(new File(desDir, "dir/empty").isDirectory());
+        long total = 0;
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), read(new File(desDir, entry.getKey())));
+            total += entry.getValue().length;
+        }
+        assertEquals(total, result.getTotalBytes());
+    }
+
+    @Test
+    public void retriesOnlyFailedEntries() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        File zip = createZip(entries, null);
+        File desDir = mFolder.newFolder("out");
+
+        UnzipEngine engine = new UnzipEngine(zip, desDir).setMaxTotalSize(10);
+        UnzipEngine.Result failed = engine.unzip();
+        assertFalse(failed.isSuccess());
+        assertNull(failed.getError());
+        List<String> failedNames = failed.getFailedEntryNames();
+        assertEquals(entries.size(), failedNames.size());
+        assertTrue(failedNames.containsAll(entries.keySet()));
+
+        UnzipEngine.Result retried = engine.setMaxTotalSize(Long.MAX_VALUE).unzip(failedNames);
+        assertTrue(retried.isSuccess());
+        assertEquals(failedNames.size(), retried.getEntryResults().size());
+        assertArrayEquals(entries.get("big.bin"), read(new File(desDir, "big.bin")));
+    }
+
+    @Test
+    public void rejectsEntriesOutsideTarget() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("../evil.txt", "x".getBytes("UTF-8"));
+        entries.put("ok.txt", "y".getBytes("UTF-8"));
+        File zip = createZip(entries, null);
+        File desDir = mFolder.newFolder("out");
+
+        UnzipEngine.Result result = new UnzipEngine(zip, desDir).unzip();
+
+        assertFalse(result.isSuccess());
+        assertEquals(Arrays.asList("../evil.txt"), result.getFailedEntryNames());
+        assertFalse(new File(desDir.getParentFile(), "evil.txt").exists());
+        assertTrue(new File(desDir, "ok.txt").exists());
+    }
+
+    @Test
+    public void archiveErrorIsNotAnEntry() throws IOException {
+        File notZip = mFolder.newFile("broken.zip");
+        FileOutputStream out = new FileOutputStream(notZip);
+        out.write("not a zip".getBytes("UTF-8"));
+        out.close();
+
+        UnzipEngine.Result result = new UnzipEngine(notZip, mFolder.newFolder("out")).unzip();
+
+        assertFalse(result.isSuccess());
+        assertNotNull(result.getError());
+        assertTrue(result.getEntryResults().isEmpty());
+        assertTrue(result.getFailedEntryNames().isEmpty());
+    }
+
+    @Test
+    public void cancelStopsAndDeletesIncompleteFiles() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        File zip = createZip(entries, null);
+        File desDir = mFolder.newFolder("out");
+        final UnzipEngine engine = new UnzipEngine(zip, desDir).setParallelism(1);
+        engine.setListener(new UnzipEngine.Listener() {
+            @Override
+            public void onEntryProgress(String name, long written, long total) {
+                engine.cancel();
+            }
+
+            @Override
+            public void onEntryFinished(UnzipEngine.EntryResult result) {
+            }
+        });
+
+        UnzipEngine.Result result = engine.unzip();
+
+        assertTrue(result.isCancelled());
+        assertFalse(result.isSuccess());
+        for (UnzipEngine.EntryResult entryResult : result.getEntryResults()) {
+            assertFalse(entryResult.isSuccess());
+            assertFalse(new File(desDir, entryResult.getName()).exists());
+        }
+    }
+
+    private static Map<String, byte[]> sampleEntries() throws IOException {
+        Random random = new Random(5);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        byte[] big = new byte[512 * 1024 + 11];
+        random.nextBytes(big);
+        entries.put("big.bin", big);
+        entries.put("empty.txt", new byte[0]);
+        for (int i = 0; i < 20; i++) {
+            byte[] small = new byte[random.nextInt(4096)];
+            random.nextBytes(small);
+            entries.put("dir/sub" + (i % 3) + "/file" + i + ".bin", small);
+        }
+        return entries;
+    }
+
+    private File createZip(Map<String, byte[]> entries, String emptyDir) throws IOException {
+        File zip = mFolder.newFile("test.zip");
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+        try {
+            if (emptyDir != null) {
+                out.putNextEntry(new ZipEntry(emptyDir));
+                out.closeEntry();
+            }
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                out.putNextEntry(new ZipEntry(entry.getKey()));
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return zip;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return ParallelZipperTest.readAll(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ngb.wyn.common.utils.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class JsonFormatterTest {
+
+    @Test
+    public void indentsNestedValues() throws Exception {
+        String expected = "{\n"
+                + "  \"a\": 1,\n"
+                + "  \"b\": [\n"
+                + "    true,\n"
+                + "    null\n"
+                + "  ],\n"
+                + "  \"c\": {}\n"
+                + "}";
+        assertEquals(expected, format(" {\"a\" : 1,\n\"b\":[true, null],\"c\":{ }} ", 2));
+    }
+
+    @Test
+    public void emptyContainersStayOnOneLine() throws Exception {
+        assertEquals("[\n    {},\n    []\n]", format("[{},[]]", -1));
+        assertEquals("{}", format("{}", 4));
+    }
+
+    @Test
+    public void stringsAndNumbersAreCopiedVerbatim() throws Exception {
+        String text = "{\"s\":\"a,b:{c}\\\"\\\\\\u4e2d\",\"n\":1.50E+3}";
+        assertEquals("{\n\"s\": \"a,b:{c}\\\"\\\\\\u4e2d\",\n\"n\": 1.50E+3\n}", format(text, 0));
+    }
+
+    @Test
+    public void outputParsesToSameValue() throws Exception {
+        String text = "{\"list\":[1,2,{\"k\":\"v\"}],\"nested\":{\"deep\":[[[]]]},\"t\":\"x y\"}";
+        assertEquals(new JSONObject(text).toString(), new JSONObject(format(text, 4)).toString());
+    }
+
+    @Test
+    public void deepNestingGrowsStack() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append('[');
+        }
+        for (int i = 0; i < 100; i++) {
+            builder.append(']');
+        }
+        String formatted = format(builder.toString(), 1);
+        assertEquals(builder.toString(), formatted.replaceAll("\\s", ""));
+    }
+
+    @Test
+    public void rejectsMalformedInput() throws IOException {
+        for (String text : new String[]{"\"text\"", "123", "{\"a\":1", "[1,2}", "{\"a\":\"b}", "{}{}", "[]]",
+                "[1 2]", "{\"a\":true false}", "{\"a\" 1}", "[\"x\"\"y\"]", "{\"a\":1 \"b\":2}", "[,1]", "{\"a\":}"}) {
+            try {
+                format(text, 2);
+                fail("expected failure for " + text);
+            } catch (JSONException expected) {
+                //期望抛出
+            }
+        }
+    }
+
+    @Test
+    public void singleQuotedStringsStayStrings() throws Exception {
+        //单引号字符串中的空格、逗号、冒号都属于字符串内容
+        assertEquals("{\n  \"a\": \"x y, z: {w}\"\n}", format("{'a':'x y, z: {w}'}", 2));
+        assertEquals("[\n\"say \\\"hi\\\"\",\n\"it's\"\n]", format("['say \"hi\"', 'it\\'s']", 0));
+        String text = "{'a':'x y','b':['c d',1]}";
+        assertEquals(new JSONObject(text).toString(), new JSONObject(format(text, 4)).toString());
+    }
+
+    @Test
+    public void unquotedKeysAreQuoted() throws Exception {
+        assertEquals("{\n\"a\": 1,\n\"b\": true\n}", format("{a:1, b : true}", 0));
+    }
+
+    private static String format(String text, int indentSpaces) throws JSONException, IOException {
+        StringBuilder builder = new StringBuilder();
+        JsonFormatter.format(new StringReader(text), builder, indentSpaces);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.ngb.wyn.common.utils.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+public class JsonMinifierTest {
+
+    @Test
+    public void removesWhitespaceOutsideStrings() throws Exception {
+        assertEquals("{\"a b\":[1,true,null,{}],\"c\":\" x \"}",
+                minify(" {\n\t\"a b\" : [ 1 , true , null , { } ] ,\r\n \"c\" : \" x \" } ", false));
+    }
+
+    @Test
+    public void keepsValueTypesAndEscapes() throws Exception {
+        String text = "[-1.5e+3,false,\"\\u4e2d\\\"\\\\\"]";
+        assertEquals(text, minify(text, false));
+    }
+
+    @Test
+    public void encodesStringValuesButNotKeys() throws Exception {
+        assertEquals("{\"a b\":\"x+y%26z\",\"n\":1,\"l\":[\"%2F\",true]}",
+                minify("{\"a b\":\"x y&z\",\"n\":1,\"l\":[\"/\",true]}", true));
+    }
+
+    @Test
+    public void encodingUnescapesFirst() throws Exception {
+        assertEquals("[\"%E4%B8%AD%0A%22\"]", minify("[\"\\u4e2d\\n\\\"\"]", true));
+    }
+
+    @Test
+    public void rejectsMalformedInput() throws IOException {
+        for (String text : new String[]{"", "true", "[1", "{\"a\":[}", "[\"x]", "[]1", "[\"\\x\"]",
+                "[true false]", "[1 2]", "{\"a\":1 \"b\":2}", "{\"a\" \"b\"}", "[{}{}]", "{,}"}) {
+            try {
+                minify(text, true);
+                fail("expected failure for " + text);
+            } catch (JSONException expected) {
+                //期望抛出
+            }
+        }
+    }
+
+    @Test
+    public void singleQuotedStringsBecomeDoubleQuoted() throws Exception {
+        assertEquals("{\"a\":\"x y, z\",\"b\":\"\\\"q\\\"\"}", minify("{'a' : 'x y, z', b: '\"q\"'}", false));
+        assertEquals("{\"a\":\"x+y%2C+z\"}", minify("{'a':'x y, z'}", true));
+    }
+
+    private static String minify(String text, boolean isEncode) throws JSONException, IOException {
+        StringBuilder builder = new StringBuilder();
+        JsonMinifier.minify(new StringReader(text), builder, isEncode);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.ngb.wyn.common.utils.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.ngb.wyn.common.utils.JsonUtil;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+public class JsonPullReaderTest {
+
+    @Test
+    public void readsMixedDocument() throws Exception {
+        JsonPullReader reader = JsonPullReader.of(
+                " {\"name\":\"a\\\"b\\u4e2d\",\"n\":-12,\"f\":1.5e2,\"ok\":true,\"no\":false,\"nil\":null,\"list\":[1,[],{}]} ");
+        reader.beginObject();
+        assertEquals("name", reader.nextName());
+        assertEquals("a\"b中", reader.nextString());
+        assertEquals("n", reader.nextName());
+        assertEquals(-12, reader.nextInt());
+        assertEquals("f", reader.nextName());
+        assertEquals(150.0, reader.nextDouble(), 0);
+        assertEquals("ok", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("no", reader.nextName());
+        assertFalse(reader.nextBoolean());
+        assertEquals("nil", reader.nextName());
+        assertEquals(JsonPullReader.Token.NULL, reader.peek());
+        reader.nextNull();
+        assertEquals("list", reader.nextName());
+        reader.beginArray();
+        assertEquals(JsonPullReader.Token.NUMBER, reader.peek());
+        assertEquals("1", reader.nextString());
+        reader.beginArray();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.beginObject();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.endObject();
+        assertEquals(JsonPullReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void doublesMatchJdkParsing() throws Exception {
+        Random random = new Random(10);
+        String[] fixed = {"0", "-0", "0.1", "0.30000000000000004", "123456789012345678", "9007199254740993",
+                "1e22", "1e23", "1e-22", "4.9e-324", "1.7976931348623157e308", "1e400", "-2.5E-3", "0.000001"};
+        StringBuilder builder = new StringBuilder("[");
+        for (String number : fixed) {
+            builder.append(number).append(',');
+        }
+        String[] numbers = new String[fixed.length + 2000];
+        System.arraycopy(fixed, 0, numbers, 0, fixed.length);
+        for (int i = fixed.length; i < numbers.length; i++) {
+            numbers[i] = (random.nextBoolean() ? "-" : "") + (random.nextInt(1000000) + 1) + "."
+                    + random.nextInt(100000000) + "e" + (random.nextInt(60) - 30);
+            builder.append(numbers[i]).append(',');
+        }
+        builder.setCharAt(builder.length() - 1, ']');
+        JsonPullReader doubles = JsonPullReader.of(builder.toString());
+        JsonPullReader floats = JsonPullReader.of(builder.toString());
+        doubles.beginArray();
+        floats.beginArray();
+        for (String number : numbers) {
+            assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)),
+                    Double.doubleToLongBits(doubles.nextDouble()));
+            assertEquals(number, Float.floatToIntBits(Float.parseFloat(number)),
+                    Float.floatToIntBits(floats.nextFloat()));
+        }
+        doubles.endArray();
+        floats.endArray();
+    }
+
+    @Test
+    public void longsAndIntsAreRangeChecked() throws Exception {
+        JsonPullReader reader = JsonPullReader.of("[9223372036854775807,-9223372036854775808,1e3,2147483648,1.5]");
+        reader.beginArray();
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(1000, reader.nextInt());
+        expectFailure(reader, true);
+        expectFailure(reader, false);
+    }
+
+    @Test
+    public void longOverflowIsRejected() throws Exception {
+        JsonPullReader reader = JsonPullReader.of("[9223372036854775808,-9223372036854775809,9.3e18,"
+                + "92233720368547758070,1e1000,9.223372036854775807e18,-9.223372036854775808E+18]");
+        reader.beginArray();
+        //刚超出long范围的值转成double后等于Long.MAX_VALUE，不能因此被接受
+        for (int i = 0; i < 5; i++) {
+            expectFailure(reader, false);
+        }
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        reader.endArray();
+    }
+
+    @Test
+    public void byteBufferPositionIsNotMoved() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap("xx[1,2]yy".getBytes(Charset.forName("UTF-8")));
+        buffer.position(2);
+        buffer.limit(7);
+        for (int round = 0; round < 2; round++) {
+            JsonPullReader reader = JsonUtil.newReader(buffer);
+            reader.beginArray();
+            assertEquals(1, reader.nextInt());
+            assertEquals(2, reader.nextInt());
+            reader.endArray();
+            assertEquals(2, buffer.position());
+            assertEquals(7, buffer.limit());
+        }
+    }
+
+    @Test
+    public void skipValueSkipsWholeSubtree() throws Exception {
+        JsonPullReader reader = JsonPullReader.of("{\"skip\":{\"a\":[1,\"]\",{\"b\":null}],\"c\":\"\\\"}\"},\"keep\":7}");
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals(7, reader.nextInt());
+        reader.endObject();
+    }
+
+    @Test
+    public void readsUtf8ByteBuffer() throws Exception {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            builder.append("\"中文").append(i).append("\",");
+        }
+        builder.append("\"😀\"]");
+        ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(Charset.forName("UTF-8")));
+        JsonPullReader reader = JsonPullReader.of(buffer);
+        reader.beginArray();
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("中文" + i, reader.nextString());
+        }
+        assertEquals("😀", reader.nextString());
+        reader.endArray();
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void rejectsMalformedDocuments() throws IOException {
+        for (String text : new String[]{"{\"a\" 1}", "[1 2]", "{\"a\":1} x", "[01]", "[-]", "{a:1}", "[\"x]", "[tru]"}) {
+            JsonPullReader reader = JsonPullReader.of(text);
+            try {
+                reader.skipValue();
+                reader.peek();
+                fail("expected failure for " + text);
+            } catch (JSONException expected) {
+                //期望抛出
+            }
+        }
+    }
+
+    private static void expectFailure(JsonPullReader reader, boolean asInt) throws IOException {
+        try {
+            if (asInt) {
+                reader.nextInt();
+            } else {
+                reader.nextLong();
+            }
+            fail();
+        } catch (JSONException expected) {
+            //期望抛出
+        }
+    }
+}
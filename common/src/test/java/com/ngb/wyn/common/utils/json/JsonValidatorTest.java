@@ -0,0 +1,61 @@
+package com.ngb.wyn.common.utils.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class JsonValidatorTest {
+
+    @Test
+    public void acceptsValidDocuments() {
+        String[] valid = {
+                "{}", "[]", " { } ", "0", "-0.5e-3", "1E+10", "\"\"", "true", "false", "null",
+                "{\"a\":[1,{\"b\":null}],\"c\":\"\\u4e2d\\n\\/\"}",
+                "\t[ 1 ,\r\n 2 ]\n",
+        };
+        for (String text : valid) {
+            assertTrue(text, JsonValidator.isValid(text));
+        }
+    }
+
+    @Test
+    public void deepNestingGrowsStack() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            builder.append(i % 2 == 0 ? "[" : "{\"k\":");
+        }
+        for (int i = 39; i >= 0; i--) {
+            builder.append(i % 2 == 0 ? "]" : "}");
+        }
+        assertFalse(JsonValidator.isValid(builder.toString()));
+        builder.insert(builder.indexOf("}"), "1");
+        assertTrue(JsonValidator.isValid(builder.toString()));
+    }
+
+    @Test
+    public void rejectsLenientAndBrokenDocuments() {
+        String[] invalid = {
+                null, "", "   ", "{a:1}", "{'a':1}", "[1,]", "{\"a\":1,}", "[1] 2", "{}{}",
+                "01", "1.", ".5", "-", "1e", "+1", "tru", "nul", "True",
+                "\"a", "\"\\x\"", "\"\\u12g4\"", "\"tab\there\"", "[", "[1", "{\"a\"}", "{\"a\":}", "[}", "{]",
+        };
+        for (String text : invalid) {
+            assertFalse(String.valueOf(text), JsonValidator.isValid(text));
+        }
+    }
+
+    @Test
+    public void sniffLooksAtFirstCharacterOnly() {
+        assertEquals(JsonType.OBJECT, JsonValidator.sniff(" {broken"));
+        assertEquals(JsonType.ARRAY, JsonValidator.sniff("\n["));
+        assertEquals(JsonType.STRING, JsonValidator.sniff("\"x"));
+        assertEquals(JsonType.NUMBER, JsonValidator.sniff("-x"));
+        assertEquals(JsonType.BOOLEAN, JsonValidator.sniff("fals"));
+        assertEquals(JsonType.NULL, JsonValidator.sniff("n"));
+        assertEquals(JsonType.EMPTY, JsonValidator.sniff(" \t"));
+        assertEquals(JsonType.EMPTY, JsonValidator.sniff(null));
+        assertEquals(JsonType.UNKNOWN, JsonValidator.sniff("abc"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BackpressureTest {
+    private TestMainThread mMainThread;
+    private MutableLiveData<String> mLiveData;
+    private LiveDataTest.Recorder mRecorder;
+
+    @Before
+    public void setUp() {
+        mMainThread = TestMainThread.install();
+        mLiveData = new MutableLiveData<>();
+        mRecorder = new LiveDataTest.Recorder();
+        mLiveData.observeForever(mRecorder);
+    }
+
+    @After
+    public void tearDown() {
+        TestMainThread.uninstall();
+    }
+
+    /**
+     * 单元测试里Choreographer.getInstance()返回null，帧回调不会执行，这里只检查同一帧内的合并：
+     * 多次post只安排一次切到主线程注册帧回调，被覆盖的值计入getCoalescedCount()
+     */
+    @Test
+    public void latestPerFrameCoalescesBurst() {
+        mLiveData.setBackpressure(Backpressure.LATEST_PER_FRAME);
+        mLiveData.postValue("a");
+        mLiveData.postValue("b");
+        mLiveData.postValue("c");
+        assertEquals(1, mMainThread.pending());
+        assertEquals(2, mLiveData.getCoalescedCount());
+        assertTrue(mLiveData.hasPendingPost());
+        assertTrue(mRecorder.mValues.isEmpty());
+        assertEquals(0, mLiveData.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestKeepsNewestValuesInOrder() {
+        mLiveData.setBackpressure(Backpressure.DROP_OLDEST, 3);
+        for (int i = 0; i < 5; i++) {
+            mLiveData.postValue(String.valueOf(i));
+        }
+        assertEquals(1, mMainThread.pending());
+        assertEquals(2, mLiveData.getDroppedCount());
+        mMainThread.drain();
+        assertEquals(Arrays.asList("2", "3", "4"), mRecorder.mValues);
+        assertFalse(mLiveData.hasPendingPost());
+
+        //缓冲区清空后再post会安排新的消息
+        mLiveData.postValue("5");
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertEquals(Arrays.asList("2", "3", "4", "5"), mRecorder.mValues);
+        assertEquals(2, mLiveData.getDroppedCount());
+        assertEquals(0, mLiveData.getCoalescedCount());
+    }
+
+    @Test
+    public void dropOldestResizeKeepsNewestPendingValues() {
+        mLiveData.setBackpressure(Backpressure.DROP_OLDEST, 4);
+        mLiveData.postValue("a");
+        mLiveData.postValue("b");
+        mLiveData.postValue("c");
+        //缩小时丢弃最旧的a
+        mLiveData.setBackpressure(Backpressure.DROP_OLDEST, 2);
+        assertEquals(1, mLiveData.getDroppedCount());
+        //放大时保留全部待分发的值
+        mLiveData.setBackpressure(Backpressure.DROP_OLDEST, 3);
+        assertEquals(1, mLiveData.getDroppedCount());
+        mLiveData.postValue("d");
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertEquals(Arrays.asList("b", "c", "d"), mRecorder.mValues);
+        assertEquals(1, mLiveData.getDroppedCount());
+    }
+
+    @Test
+    public void dropOldestValuePostedDuringDispatchGetsItsOwnMessage() {
+        mLiveData.setBackpressure(Backpressure.DROP_OLDEST, 2);
+        mLiveData.observeForever(new LiveDataTest.Recorder() {
+            @Override
+            public void onChanged(String value) {
+                if ("a".equals(value)) {
+                    mLiveData.postValue("c");
+                }
+            }
+        });
+        mLiveData.postValue("a");
+        mLiveData.postValue("b");
+        //a分发时post的c排在b之后
+        assertEquals(2, mMainThread.drain());
+        assertEquals(Arrays.asList("a", "b", "c"), mRecorder.mValues);
+        assertEquals(0, mLiveData.getDroppedCount());
+    }
+
+    @Test
+    public void deliverAllKeepsEveryValueInOrder() throws Exception {
+        mLiveData.setBackpressure(Backpressure.DELIVER_ALL);
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            //null也按顺序分发
+            expected.add(i == 500 ? null : String.valueOf(i));
+        }
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (String value : expected) {
+                    mLiveData.postValue(value);
+                }
+            }
+        });
+        publisher.start();
+        publisher.join();
+        assertEquals(1, mMainThread.pending());
+        assertTrue(mRecorder.mValues.isEmpty());
+        mMainThread.drain();
+        assertEquals(expected, mRecorder.mValues);
+        assertFalse(mLiveData.hasPendingPost());
+        assertEquals(0, mLiveData.getCoalescedCount());
+        assertEquals(0, mLiveData.getDroppedCount());
+
+        mLiveData.postValue("next");
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertEquals("next", mRecorder.mValues.get(mRecorder.mValues.size() - 1));
+    }
+}
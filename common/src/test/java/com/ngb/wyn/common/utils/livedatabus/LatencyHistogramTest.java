@@ -0,0 +1,113 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.ngb.wyn.common.TestApplication;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @BeforeClass
+    public static void installApplication() {
+        TestApplication.install();
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(50d));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 16; i++) {
+            histogram.record(i);
+        }
+        assertEquals(16, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(0d));
+        //16个值中第8个
+        assertEquals(7, histogram.getValueAtPercentile(50d));
+        assertEquals(15, histogram.getValueAtPercentile(100d));
+    }
+
+    @Test
+    public void reportedValueIsWithinPrecision() {
+        Random random = new Random(5);
+        for (int i = 0; i < 10000; i++) {
+            long value = 16 + (random.nextLong() >>> 28);
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            //再记录一个更大的值，避免结果被最大值截断
+            histogram.record(Long.MAX_VALUE);
+            long reported = histogram.getValueAtPercentile(50d);
+            assertTrue(value + " -> " + reported, reported >= value && reported <= value + value / 8);
+        }
+    }
+
+    @Test
+    public void percentilesMatchSortedValues() {
+        Random random = new Random(9);
+        long[] values = new long[100000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.abs(random.nextGaussian() * 1000000d);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[]{50d, 90d, 99d, 99.9d}) {
+            long expected = values[(int) Math.ceil(percentile / 100d * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + expected + " -> " + reported,
+                    reported >= expected && reported <= expected + expected / 8);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxValue());
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100d));
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getValueAtPercentile(100d));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals((1L << 36) - 1, histogram.getMaxValue());
+        assertEquals((1L << 36) - 1, histogram.getValueAtPercentile(100d));
+    }
+
+    @Test
+    public void resetClearsCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        histogram.record(3);
+        assertEquals(3, histogram.getValueAtPercentile(50d));
+    }
+
+    @Test
+    public void channelMetricsCountSlowObservers() {
+        ChannelMetrics metrics = new ChannelMetrics("metrics", 1);
+        metrics.recordDispatch(2000);
+        metrics.recordObserver(this, 500);
+        metrics.recordObserver(this, 5000000);
+        ChannelSnapshot snapshot = metrics.snapshot(2);
+        assertEquals("metrics", snapshot.getKey());
+        assertEquals(2, snapshot.getObserverCount());
+        assertEquals(1, snapshot.getPublishCount());
+        assertEquals(2, snapshot.getDeliveryCount());
+        assertEquals(1, snapshot.getSlowObserverCount());
+        assertEquals(5000000, snapshot.getObserverMaxNanos());
+        metrics.reset();
+        assertEquals(0, metrics.snapshot(0).getPublishCount());
+    }
+}
@@ -0,0 +1,379 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.Observer;
+
+import com.ngb.wyn.common.Benchmark;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LiveDataBusTest {
+    private TestMainThread mMainThread;
+    private String mPrefix;
+
+    @Before
+    public void setUp() {
+        mMainThread = TestMainThread.install();
+        //LiveDataBus是单例，每个用例使用自己的key
+        mPrefix = "test-" + System.nanoTime() + "-";
+    }
+
+    @After
+    public void tearDown() {
+        TestMainThread.uninstall();
+    }
+
+    @Test
+    public void concurrentLookupsCreateOneChannelPerKey() throws Exception {
+        final int threads = 16;
+        final int keys = 1000;
+        final int rounds = 20;
+        final String prefix = mPrefix;
+        final ConcurrentHashMap<String, Object> seen = new ConcurrentHashMap<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t * 61;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    int mismatches = 0;
+                    for (int round = 0; round < rounds; round++) {
+                        for (int i = 0; i < keys; i++) {
+                            //每个线程从不同位置开始，让同一个key的首次创建发生竞争
+                            String key = prefix + (i + offset) % keys;
+                            Object channel = LiveDataBus.get().with(key);
+                            Object previous = seen.putIfAbsent(key, channel);
+                            if (previous != null && previous != channel) {
+                                mismatches++;
+                            }
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(Integer.valueOf(0), future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(keys, seen.size());
+        for (int i = 0; i < keys; i++) {
+            assertSame(seen.get(prefix + i), LiveDataBus.get().with(prefix + i));
+        }
+    }
+
+    /**
+     * 16个线程创建、查找频道的吞吐量，查找与加锁的HashMap对比，-Pbenchmark时运行
+     */
+    @Test
+    public void benchmarkConcurrentLookup() throws Exception {
+        Benchmark.assumeEnabled();
+        final int threads = 16;
+        final int keysPerThread = 5000;
+        final int lookups = 200000;
+        final String[] keys = new String[threads * keysPerThread];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = mPrefix + "bench" + i;
+        }
+        long create = runConcurrently(threads, t -> {
+            for (int i = 0; i < keysPerThread; i++) {
+                LiveDataBus.get().with(keys[t * keysPerThread + i]);
+            }
+        });
+        Benchmark.report("bus create", "%d threads, %.0f channels/s", threads, keys.length * 1e9 / create);
+
+        long lookup = runConcurrently(threads, t -> {
+            for (int i = 0; i < lookups; i++) {
+                LiveDataBus.get().with(keys[(i * 31 + t) % 1000]);
+            }
+        });
+        final Map<String, Object> locked = Collections.synchronizedMap(new HashMap<String, Object>());
+        for (int i = 0; i < 1000; i++) {
+            locked.put(keys[i], LiveDataBus.get().with(keys[i]));
+        }
+        long lockedLookup = runConcurrently(threads, t -> {
+            for (int i = 0; i < lookups; i++) {
+                locked.get(keys[(i * 31 + t) % 1000]);
+            }
+        });
+        Benchmark.report("bus lookup", "%d threads, %.0f lookups/s, synchronized HashMap %.0f lookups/s, %d cpus",
+                threads, threads * (double) lookups * 1e9 / lookup,
+                threads * (double) lookups * 1e9 / lockedLookup, Runtime.getRuntime().availableProcessors());
+    }
+
+    interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * @return 所有线程同时开始到全部结束的耗时，纳秒
+     */
+    private static long runConcurrently(int threads, final ThreadTask task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            return System.nanoTime() - begin;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void batchCommittedOffMainPostsOneMessage() throws Exception {
+        final MutableLiveData<Object> first = LiveDataBus.get().with(mPrefix + "first");
+        final MutableLiveData<Object> second = LiveDataBus.get().with(mPrefix + "second");
+        second.setBackpressure(Backpressure.DROP_OLDEST, 1);
+        final List<String> delivered = new ArrayList<>();
+        final List<Thread> postingThreads = new ArrayList<>();
+        first.observeForever(new Observer<Object>() {
+            @Override
+            public void onChanged(Object value) {
+                delivered.add("first:" + value);
+            }
+        });
+        second.observeForever(new Observer<Object>() {
+            @Override
+            public void onChanged(Object value) {
+                delivered.add("second:" + value);
+            }
+        });
+        second.observeForever(new Observer<Object>() {
+            @Override
+            public void onChanged(Object value) {
+                postingThreads.add(Thread.currentThread());
+            }
+        }, ThreadMode.POSTING);
+        Thread committer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                LiveDataBus.get().batch()
+                        .post(first, "a")
+                        .post(second, "b")
+                        .post(second, "c")
+                        .post(mPrefix + "first", "d")
+                        .commit();
+            }
+        });
+        committer.start();
+        committer.join();
+        assertEquals(1, mMainThread.pending());
+        assertEquals(Arrays.asList(committer, committer), postingThreads);
+        assertTrue(delivered.isEmpty());
+        mMainThread.drain();
+        //批量提交不经过DROP_OLDEST，同一个频道的多个值都会送达
+        assertEquals(Arrays.asList("first:a", "second:b", "second:c", "first:d"), delivered);
+        //POSTING观察者已在提交线程上调用过，主线程分发时不再调用
+        assertEquals(2, postingThreads.size());
+    }
+
+    @Test
+    public void batchCommittedOnMainRunsImmediately() {
+        final List<Object> delivered = new ArrayList<>();
+        MutableLiveData<Object> channel = LiveDataBus.get().with(mPrefix + "main");
+        channel.observeForever(new Observer<Object>() {
+            @Override
+            public void onChanged(Object value) {
+                delivered.add(value);
+            }
+        }, ThreadMode.POSTING);
+        LiveDataBus.get().batch().post(channel, 1).post(channel, 2).commit();
+        assertEquals(0, mMainThread.pending());
+        assertEquals(Arrays.<Object>asList(1, 2), delivered);
+    }
+
+    @Test
+    public void busObserverIsNotSticky() {
+        MutableLiveData<String> channel = LiveDataBus.get().with(mPrefix + "nonSticky", String.class);
+        channel.setValue("old");
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        owner.setState(Lifecycle.State.STARTED);
+        LiveDataTest.Recorder recorder = new LiveDataTest.Recorder();
+        channel.observe(owner, recorder);
+        channel.observe(owner, recorder);
+        channel.setValue("new");
+        assertEquals(Arrays.asList("new"), recorder.mValues);
+    }
+
+    @Test
+    public void undeclaredKeyAcceptsAnyType() {
+        String key = mPrefix + "untyped";
+        MutableLiveData<String> asString = LiveDataBus.get().with(key, String.class);
+        //未声明BusKey的频道保持原有行为，不检查类型
+        MutableLiveData<Integer> asInteger = LiveDataBus.get().with(key, Integer.class);
+        assertSame(asString, asInteger);
+        assertSame(asString, LiveDataBus.get().with(key));
+    }
+
+    @Test
+    public void declaredKeyAcceptsRelatedTypesOnly() {
+        BusKey<String> key = BusKey.of(mPrefix + "typed", String.class);
+        MutableLiveData<String> channel = LiveDataBus.get().with(key);
+        assertSame(channel, LiveDataBus.get().with(key));
+        assertSame(channel, LiveDataBus.get().with(key.getName(), String.class));
+        assertSame(channel, LiveDataBus.get().with(key.getName(), CharSequence.class));
+        assertSame(channel, LiveDataBus.get().with(key.getName()));
+        try {
+            LiveDataBus.get().with(key.getName(), Integer.class);
+            //期望抛出
+            fail();
+        } catch (IllegalArgumentException e) {
+            //期望抛出
+        }
+    }
+
+    @Test
+    public void busKeyIsInternedWithOneType() {
+        String name = mPrefix + "interned";
+        //先通过字符串使用过的频道，也可以再声明为BusKey
+        MutableLiveData<Object> channel = LiveDataBus.get().with(name);
+        BusKey<Integer> key = BusKey.of(name, Integer.class);
+        assertSame(key, BusKey.of(name, Integer.class));
+        assertSame(channel, LiveDataBus.get().with(key));
+        try {
+            BusKey.of(name, Number.class);
+            //期望抛出
+            fail();
+        } catch (IllegalArgumentException e) {
+            //期望抛出
+        }
+        try {
+            BusKey.of(mPrefix + "primitive", int.class);
+            //期望抛出
+            fail();
+        } catch (IllegalArgumentException e) {
+            //期望抛出
+        }
+    }
+
+    @Test
+    public void idleChannelIsEvictedOnSecondSweep() {
+        String key = mPrefix + "idle";
+        MutableLiveData<Object> channel = LiveDataBus.get().with(key);
+        //第一次清理只清除访问标记
+        LiveDataBus.get().evictIdleChannels();
+        LiveDataBus.get().evictIdleChannels();
+        assertNotSame(channel, LiveDataBus.get().with(key));
+    }
+
+    @Test
+    public void pendingPostKeepsChannel() {
+        String key = mPrefix + "pending";
+        MutableLiveData<Object> channel = LiveDataBus.get().with(key);
+        channel.postValue("a");
+        LiveDataBus.get().evictIdleChannels();
+        LiveDataBus.get().evictIdleChannels();
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertSame(channel, LiveDataBus.get().with(key));
+        assertEquals("a", channel.getValue());
+    }
+
+    @Test
+    public void pendingPostIsSeenUnderEveryBackpressure() {
+        for (Backpressure backpressure : new Backpressure[]{Backpressure.LATEST,
+                Backpressure.DROP_OLDEST, Backpressure.DELIVER_ALL}) {
+            MutableLiveData<Object> liveData = new MutableLiveData<>();
+            liveData.setBackpressure(backpressure, 2);
+            assertFalse(backpressure.name(), liveData.hasPendingPost());
+            liveData.postValue("a");
+            liveData.postValue("b");
+            liveData.postValue("c");
+            assertTrue(backpressure.name(), liveData.hasPendingPost());
+            mMainThread.drain();
+            assertFalse(backpressure.name(), liveData.hasPendingPost());
+        }
+    }
+
+    @Test
+    public void replayKeepsChannelAfterWeakValueIsCollected() throws InterruptedException {
+        String key = mPrefix + "replay";
+        MutableLiveData<Object> channel = LiveDataBus.get().with(key);
+        channel.setWeakValue(true);
+        Object value = new Object();
+        WeakReference<Object> probe = new WeakReference<>(value);
+        channel.setValue(value);
+        //回放历史会强引用记录的值，先设置值再开启回放，当前值才可能被回收
+        channel.setReplay(3, 0);
+        value = null;
+        for (int i = 0; i < 20 && probe.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assume.assumeTrue(probe.get() == null);
+        assertFalse(channel.hasValue());
+        LiveDataBus.get().evictIdleChannels();
+        LiveDataBus.get().evictIdleChannels();
+        assertSame(channel, LiveDataBus.get().with(key));
+        channel.setValue("a");
+        final List<Object> replayed = new ArrayList<>();
+        channel.observeForeverReplay(new Observer<Object>() {
+            @Override
+            public void onChanged(Object value) {
+                replayed.add(value);
+            }
+        });
+        assertEquals(Arrays.<Object>asList("a"), replayed);
+    }
+
+    @Test
+    public void deliveryConfigKeepsChannelUntilReset() {
+        String key = mPrefix + "config";
+        MutableLiveData<Object> channel = LiveDataBus.get().with(key);
+        channel.setBackpressure(Backpressure.DROP_OLDEST, 4);
+        channel.setWeakValue(true);
+        LiveDataBus.get().evictIdleChannels();
+        LiveDataBus.get().evictIdleChannels();
+        assertSame(channel, LiveDataBus.get().with(key));
+
+        channel.setBackpressure(Backpressure.LATEST);
+        LiveDataBus.get().evictIdleChannels();
+        LiveDataBus.get().evictIdleChannels();
+        MutableLiveData<Object> created = LiveDataBus.get().with(key);
+        assertNotSame(channel, created);
+        //弱引用标志不随淘汰保留
+        assertFalse(created.isWeakValue());
+        assertEquals(Backpressure.LATEST, created.getBackpressure());
+    }
+}
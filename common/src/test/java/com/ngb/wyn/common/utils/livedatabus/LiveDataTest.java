@@ -0,0 +1,350 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.Observer;
+
+import com.ngb.wyn.common.Benchmark;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LiveDataTest {
+    private TestMainThread mMainThread;
+    private MutableLiveData<String> mLiveData;
+
+    @Before
+    public void setUp() {
+        mMainThread = TestMainThread.install();
+        mLiveData = new MutableLiveData<>();
+    }
+
+    @After
+    public void tearDown() {
+        TestMainThread.uninstall();
+    }
+
+    @Test
+    public void observeForeverSkipsValueSetBefore() {
+        mLiveData.setValue("old");
+        Recorder recorder = new Recorder();
+        mLiveData.observeForever(recorder);
+        assertTrue(recorder.mValues.isEmpty());
+        mLiveData.setValue("new");
+        assertEquals(Arrays.asList("new"), recorder.mValues);
+    }
+
+    @Test
+    public void observeForeverStickyReceivesCurrentValue() {
+        mLiveData.setValue("old");
+        Recorder recorder = new Recorder();
+        mLiveData.observeForeverSticky(recorder);
+        mLiveData.setValue("new");
+        assertEquals(Arrays.asList("old", "new"), recorder.mValues);
+    }
+
+    @Test
+    public void eachValueIsDeliveredOnceUntilRemoved() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        mLiveData.observeForever(first);
+        mLiveData.observeForever(second);
+        //重复注册被忽略
+        mLiveData.observeForever(first);
+        mLiveData.setValue("a");
+        mLiveData.removeObserver(first);
+        mLiveData.setValue("b");
+        assertEquals(Arrays.asList("a"), first.mValues);
+        assertEquals(Arrays.asList("a", "b"), second.mValues);
+        mLiveData.removeObserver(second);
+        assertFalse(mLiveData.hasObservers());
+    }
+
+    @Test
+    public void observeSkipsValueSetBeforeAndReceivesLaterValues() {
+        mLiveData.setValue("old");
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        Recorder recorder = new Recorder();
+        mLiveData.observe(owner, recorder);
+        owner.setState(Lifecycle.State.STARTED);
+        assertTrue(recorder.mValues.isEmpty());
+        mLiveData.setValue("new");
+        assertEquals(Arrays.asList("new"), recorder.mValues);
+    }
+
+    @Test
+    public void observeReceivesValueSetWhileInactive() {
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        Recorder recorder = new Recorder();
+        mLiveData.setValue("old");
+        mLiveData.observe(owner, recorder);
+        //注册之后、激活之前设置的值在激活时分发
+        mLiveData.setValue("later");
+        assertTrue(recorder.mValues.isEmpty());
+        owner.setState(Lifecycle.State.STARTED);
+        assertEquals(Arrays.asList("later"), recorder.mValues);
+    }
+
+    @Test
+    public void observeSameObserverTwiceIsNoOp() throws Exception {
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        owner.setState(Lifecycle.State.STARTED);
+        Recorder recorder = new Recorder();
+        Recorder posting = new Recorder();
+        mLiveData.observe(owner, recorder);
+        mLiveData.observe(owner, posting, ThreadMode.POSTING);
+        mLiveData.setValue("a");
+        //重复注册不会重置版本，也不会再加一个POSTING观察者
+        mLiveData.observe(owner, recorder);
+        mLiveData.observe(owner, posting, ThreadMode.POSTING);
+        postFromOtherThread("b");
+        mMainThread.drain();
+        assertEquals(Arrays.asList("a", "b"), recorder.mValues);
+        assertEquals(Arrays.asList("a", "b"), posting.mValues);
+        try {
+            mLiveData.observe(new TestLifecycleOwner(), recorder);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            //期望抛出
+        }
+    }
+
+    @Test
+    public void postValueKeepsLatestPending() {
+        Recorder recorder = new Recorder();
+        mLiveData.observeForever(recorder);
+        mLiveData.postValue("a");
+        mLiveData.postValue("b");
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertEquals(Arrays.asList("b"), recorder.mValues);
+        assertEquals(1, mLiveData.getCoalescedCount());
+    }
+
+    @Test
+    public void postingObserverRunsOnPublisherOnlyOnce() throws Exception {
+        final List<Thread> threads = new ArrayList<>();
+        Recorder posting = new Recorder() {
+            @Override
+            public void onChanged(String value) {
+                threads.add(Thread.currentThread());
+                super.onChanged(value);
+            }
+        };
+        Recorder main = new Recorder();
+        mLiveData.observeForever(posting, ThreadMode.POSTING);
+        mLiveData.observeForever(main);
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mLiveData.postValue("posted");
+            }
+        });
+        publisher.start();
+        publisher.join();
+        assertEquals(Arrays.asList("posted"), posting.mValues);
+        assertTrue(main.mValues.isEmpty());
+        mMainThread.drain();
+        assertEquals(Arrays.asList("posted"), posting.mValues);
+        assertEquals(Arrays.asList("posted"), main.mValues);
+        assertEquals(Arrays.asList(publisher), threads);
+        //setValue在主线程上也会调用POSTING观察者
+        mLiveData.setValue("set");
+        assertEquals(Arrays.asList("posted", "set"), posting.mValues);
+    }
+
+    @Test
+    public void stickyPostingObserverReceivesPostedValue() throws Exception {
+        postFromOtherThread("posted");
+        mMainThread.drain();
+        Recorder sticky = new Recorder();
+        mLiveData.observeForeverSticky(sticky, ThreadMode.POSTING);
+        //注册晚于post的粘性观察者没有在post线程上收到过这个值
+        assertEquals(Arrays.asList("posted"), sticky.mValues);
+    }
+
+    @Test
+    public void inactivePostingObserverReceivesPostedValueWhenActive() throws Exception {
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        owner.setState(Lifecycle.State.STARTED);
+        Recorder posting = new Recorder();
+        mLiveData.observe(owner, posting, ThreadMode.POSTING);
+        owner.setState(Lifecycle.State.CREATED);
+        postFromOtherThread("posted");
+        mMainThread.drain();
+        assertTrue(posting.mValues.isEmpty());
+        owner.setState(Lifecycle.State.STARTED);
+        assertEquals(Arrays.asList("posted"), posting.mValues);
+    }
+
+    @Test
+    public void serialObserverReceivesValuesInOrderOffMainThread() throws Exception {
+        final List<String> values = Collections.synchronizedList(new ArrayList<String>());
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final CountDownLatch done = new CountDownLatch(200);
+        mLiveData.observeForever(new Observer<String>() {
+            @Override
+            public void onChanged(String value) {
+                values.add(value);
+                threads.add(Thread.currentThread());
+                done.countDown();
+            }
+        }, ThreadMode.SERIAL);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            expected.add(String.valueOf(i));
+            mLiveData.setValue(String.valueOf(i));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, values);
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void backgroundObserverStopsAfterRemoval() throws Exception {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        Observer<String> observer = new Observer<String>() {
+            @Override
+            public void onChanged(String value) {
+                threads.add(Thread.currentThread());
+                delivered.countDown();
+            }
+        };
+        mLiveData.observeForever(observer, ThreadMode.BACKGROUND);
+        mLiveData.setValue("a");
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        assertFalse(threads.contains(Thread.currentThread()));
+        mLiveData.removeObserver(observer);
+        mLiveData.setValue("b");
+        Thread.sleep(50);
+        assertEquals(1, threads.size());
+    }
+
+    /**
+     * 每个事件的分发耗时：现在的版本号判断，对比原先每次onChanged都遍历调用栈的包装，-Pbenchmark时运行
+     */
+    @Test
+    public void benchmarkForeverDispatch() throws Exception {
+        Benchmark.assumeEnabled();
+        final int events = 10000;
+        final Recorder plain = new Recorder();
+        final Recorder walked = new Recorder();
+        for (final Observer<String> observer : Arrays.<Observer<String>>asList(plain, new StackWalkingObserver(walked))) {
+            final MutableLiveData<String> liveData = new MutableLiveData<>();
+            liveData.observeForever(observer);
+            long nanos = Benchmark.medianNanos(3, 11, new Benchmark.Task() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < events; i++) {
+                        liveData.setValue("value");
+                    }
+                }
+            });
+            Benchmark.report(observer == plain ? "version check" : "stack walk", "%.0f ns/event", nanos / (double) events);
+        }
+        assertEquals(plain.mValues.size(), walked.mValues.size());
+    }
+
+    /**
+     * 10000个事件、两个轻量和两个耗时约20us的观察者时主线程的CPU时间：耗时观察者在MAIN上，
+     * 对比放到SERIAL、BACKGROUND上，-Pbenchmark时运行
+     */
+    @Test
+    public void benchmarkMainThreadTimeWithMixedObservers() throws Exception {
+        Benchmark.assumeEnabled();
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isCurrentThreadCpuTimeSupported());
+        final int events = 10000;
+        for (ThreadMode[] heavyModes : new ThreadMode[][]{{ThreadMode.MAIN, ThreadMode.MAIN},
+                {ThreadMode.SERIAL, ThreadMode.BACKGROUND}}) {
+            MutableLiveData<String> liveData = new MutableLiveData<>();
+            final AtomicInteger heavyCalls = new AtomicInteger();
+            liveData.observeForever(new Recorder());
+            liveData.observeForever(new Recorder());
+            for (ThreadMode mode : heavyModes) {
+                liveData.observeForever(new Observer<String>() {
+                    @Override
+                    public void onChanged(String value) {
+                        long end = System.nanoTime() + 20000;
+                        while (System.nanoTime() < end) {
+                            //模拟埋点、写盘等耗时操作
+                        }
+                        heavyCalls.incrementAndGet();
+                    }
+                }, mode);
+            }
+            long cpuStart = bean.getCurrentThreadCpuTime();
+            for (int i = 0; i < events; i++) {
+                liveData.setValue(String.valueOf(i));
+            }
+            long mainCpu = bean.getCurrentThreadCpuTime() - cpuStart;
+            long deadline = System.currentTimeMillis() + 60000;
+            while (heavyCalls.get() < 2 * events && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2 * events, heavyCalls.get());
+            Benchmark.report("heavy observers on " + Arrays.toString(heavyModes),
+                    "%.1f ms main thread cpu per %d events", mainCpu / 1e6, events);
+        }
+    }
+
+    /**
+     * 原BusMutableLiveData中ObserverWrapper的做法，仅用于对比
+     */
+    private static class StackWalkingObserver implements Observer<String> {
+        private final Observer<String> mObserver;
+
+        StackWalkingObserver(Observer<String> observer) {
+            mObserver = observer;
+        }
+
+        @Override
+        public void onChanged(String value) {
+            for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+                if ("android.arch.lifecycle.LiveData".equals(element.getClassName())
+                        && "observeForever".equals(element.getMethodName())) {
+                    return;
+                }
+            }
+            mObserver.onChanged(value);
+        }
+    }
+
+    private void postFromOtherThread(final String value) throws InterruptedException {
+        Thread publisher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mLiveData.postValue(value);
+            }
+        });
+        publisher.start();
+        publisher.join();
+    }
+
+    static class Recorder implements Observer<String> {
+        final List<String> mValues = new ArrayList<>();
+
+        @Override
+        public void onChanged(String value) {
+            mValues.add(value);
+        }
+    }
+}
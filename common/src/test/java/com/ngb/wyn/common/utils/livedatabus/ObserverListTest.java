@@ -0,0 +1,204 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.lifecycle.Observer;
+
+import com.ngb.wyn.common.Benchmark;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ObserverListTest {
+
+    @Before
+    public void setUp() {
+        TestMainThread.install();
+    }
+
+    @After
+    public void tearDown() {
+        TestMainThread.uninstall();
+    }
+
+    @Test
+    public void putGetRemoveKeepInsertionOrder() {
+        ObserverList<String, String> list = new ObserverList<>();
+        //超过初始容量，检查扩容
+        for (int i = 0; i < 10; i++) {
+            assertNull(list.putIfAbsent("k" + i, "v" + i));
+        }
+        assertEquals("v3", list.putIfAbsent("k3", "other"));
+        assertEquals("v3", list.get("k3"));
+        assertEquals(10, list.size());
+
+        assertEquals("v3", list.remove("k3"));
+        assertNull(list.remove("k3"));
+        assertNull(list.get("k3"));
+        assertEquals(Arrays.asList("v0", "v1", "v2", "v4", "v5", "v6", "v7", "v8", "v9"), values(list));
+        for (int i = 0; i < 10; i++) {
+            list.remove("k" + i);
+        }
+        assertEquals(0, list.size());
+        assertNull(list.putIfAbsent("k3", "again"));
+        assertEquals(Arrays.asList("again"), values(list));
+    }
+
+    @Test
+    public void capturedRangeIsStableWhileModified() {
+        ObserverList<String, String> list = new ObserverList<>();
+        list.putIfAbsent("a", "a");
+        list.putIfAbsent("b", "b");
+        list.putIfAbsent("c", "c");
+        //模拟分发过程中读取的数组和大小
+        Object[] values = list.values();
+        int size = list.size();
+        list.putIfAbsent("d", "d");
+        list.remove("a");
+        list.putIfAbsent("e", "e");
+        list.remove("c");
+        assertEquals(Arrays.asList("a", "b", "c"), Arrays.asList(values).subList(0, size));
+        assertEquals(Arrays.asList("b", "d", "e"), values(list));
+    }
+
+    @Test
+    public void observerRemovedDuringDispatchIsSkipped() {
+        final MutableLiveData<String> liveData = new MutableLiveData<>();
+        final List<String> calls = new ArrayList<>();
+        final Observer<String> second = new Observer<String>() {
+            @Override
+            public void onChanged(String value) {
+                calls.add("second " + value);
+            }
+        };
+        liveData.observeForever(new Observer<String>() {
+            @Override
+            public void onChanged(String value) {
+                calls.add("first " + value);
+                liveData.removeObserver(second);
+            }
+        });
+        liveData.observeForever(second);
+        liveData.setValue("a");
+        assertEquals(Arrays.asList("first a"), calls);
+    }
+
+    /**
+     * 用HotSpot的线程分配计数确认10、100、1000个观察者时分发不再为迭代分配对象，
+     * 原先SafeIterableMap每次分发都要分配一个迭代器
+     */
+    @Test
+    public void dispatchDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int count : new int[]{10, 100, 1000}) {
+            MutableLiveData<String> liveData = new MutableLiveData<>();
+            final int[] calls = new int[1];
+            for (int i = 0; i < count; i++) {
+                liveData.observeForever(new Observer<String>() {
+                    @Override
+                    public void onChanged(String value) {
+                        calls[0]++;
+                    }
+                });
+            }
+            int dispatches = 100000;
+            //预热
+            for (int i = 0; i < dispatches; i++) {
+                liveData.setValue("value");
+            }
+            long threadId = Thread.currentThread().getId();
+            long before = allocationBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < dispatches; i++) {
+                liveData.setValue("value");
+            }
+            long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+            //每次分发分配一个迭代器（至少16字节）就会超过1.5MB
+            assertTrue(count + " observers, allocated " + allocated + " bytes", allocated < 64 * 1024);
+            assertEquals(2 * dispatches * count, calls[0]);
+        }
+    }
+
+    /**
+     * 10、100、1000个观察者时observeForever、setValue分发、removeObserver的耗时，-Pbenchmark时运行
+     */
+    @Test
+    public void benchmarkAddRemoveDispatch() throws Exception {
+        Benchmark.assumeEnabled();
+        //第一遍只用于预热，否则先测的10个观察者包含了JIT编译的时间
+        for (int pass = 0; pass < 2; pass++) {
+            for (final int count : new int[]{10, 100, 1000}) {
+                benchmarkObservers(count, pass == 1);
+            }
+        }
+    }
+
+    private static void benchmarkObservers(final int count, boolean report) throws Exception {
+        final MutableLiveData<String> liveData = new MutableLiveData<>();
+        final int[] calls = new int[1];
+        final List<Observer<String>> observers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            observers.add(new Observer<String>() {
+                @Override
+                public void onChanged(String value) {
+                    calls[0]++;
+                }
+            });
+        }
+        long add = Benchmark.medianNanos(200, 101, new Benchmark.Task() {
+            @Override
+            public void run() {
+                for (Observer<String> observer : observers) {
+                    liveData.observeForever(observer);
+                }
+                for (Observer<String> observer : observers) {
+                    liveData.removeObserver(observer);
+                }
+            }
+        });
+        for (Observer<String> observer : observers) {
+            liveData.observeForever(observer);
+        }
+        long remove = Benchmark.medianNanos(200, 101, new Benchmark.Task() {
+            @Override
+            public void run() {
+                //从中间删除再加回，删除需要移动后面的元素
+                Observer<String> observer = observers.get(count / 2);
+                liveData.removeObserver(observer);
+                liveData.observeForever(observer);
+            }
+        });
+        final int dispatches = 100000 / count + 1;
+        long dispatch = Benchmark.medianNanos(5, 21, new Benchmark.Task() {
+            @Override
+            public void run() {
+                for (int i = 0; i < dispatches; i++) {
+                    liveData.setValue("value");
+                }
+            }
+        });
+        if (report) {
+            Benchmark.report(count + " observers",
+                    "add+remove all %.0f ns/observer, remove+add middle %.0f ns, dispatch %.1f ns/observer",
+                    add / (double) count, (double) remove, dispatch / (double) dispatches / count);
+        }
+        assertTrue(calls[0] > 0);
+    }
+
+    private static List<Object> values(ObserverList<?, ?> list) {
+        return Arrays.asList(list.values()).subList(0, list.size());
+    }
+}
@@ -0,0 +1,251 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.ngb.wyn.common.Benchmark;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PrimitiveChannelTest {
+    private TestMainThread mMainThread;
+
+    @Before
+    public void setUp() {
+        mMainThread = TestMainThread.install();
+    }
+
+    @After
+    public void tearDown() {
+        TestMainThread.uninstall();
+    }
+
+    @Test
+    public void observeSkipsValueSetBeforeUnlessSticky() {
+        IntChannel channel = new IntChannel();
+        assertFalse(channel.hasValue());
+        channel.setValue(1);
+        assertTrue(channel.hasValue());
+        final List<Integer> normal = new ArrayList<>();
+        final List<Integer> sticky = new ArrayList<>();
+        channel.observeForever(new IntChannel.Observer() {
+            @Override
+            public void onChanged(int value) {
+                normal.add(value);
+            }
+        });
+        channel.observeForeverSticky(new IntChannel.Observer() {
+            @Override
+            public void onChanged(int value) {
+                sticky.add(value);
+            }
+        });
+        channel.setValue(2);
+        assertEquals(Arrays.asList(2), normal);
+        assertEquals(Arrays.asList(1, 2), sticky);
+    }
+
+    @Test
+    public void postValueKeepsLatestPending() {
+        final List<Long> values = new ArrayList<>();
+        LongChannel channel = new LongChannel();
+        channel.observeForever(new LongChannel.Observer() {
+            @Override
+            public void onChanged(long value) {
+                values.add(value);
+            }
+        });
+        channel.postValue(1L);
+        channel.postValue(Long.MAX_VALUE);
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertEquals(Arrays.asList(Long.MAX_VALUE), values);
+        assertEquals(Long.MAX_VALUE, channel.getValue());
+        //分发后再次post会重新调度
+        channel.postValue(3L);
+        assertEquals(1, mMainThread.pending());
+        mMainThread.drain();
+        assertEquals(Arrays.asList(Long.MAX_VALUE, 3L), values);
+    }
+
+    @Test
+    public void removedObserverIsNotCalled() {
+        final List<Float> values = new ArrayList<>();
+        FloatChannel.Observer observer = new FloatChannel.Observer() {
+            @Override
+            public void onChanged(float value) {
+                values.add(value);
+            }
+        };
+        FloatChannel channel = new FloatChannel();
+        channel.observeForever(observer);
+        channel.setValue(0.5f);
+        channel.removeObserver(observer);
+        assertFalse(channel.hasObservers());
+        channel.setValue(1.5f);
+        assertEquals(Arrays.asList(0.5f), values);
+    }
+
+    @Test
+    public void setValueOffMainThreadThrows() throws InterruptedException {
+        final IntChannel channel = new IntChannel();
+        final Throwable[] error = new Throwable[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    channel.setValue(5);
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(error[0] instanceof IllegalStateException);
+        //抛出前不应修改当前值
+        assertEquals(0, channel.getValue());
+        assertFalse(channel.hasValue());
+    }
+
+    @Test
+    public void busRejectsSameKeyWithOtherPrimitiveType() {
+        String key = "primitive-" + System.nanoTime();
+        IntChannel channel = LiveDataBus.get().withInt(key);
+        assertTrue(channel == LiveDataBus.get().withInt(key));
+        try {
+            LiveDataBus.get().withLong(key);
+            //期望抛出
+            fail();
+        } catch (IllegalArgumentException e) {
+            //期望抛出
+        }
+    }
+
+    /**
+     * 用HotSpot的线程分配计数统计setValue分发的分配量，装箱一次至少16字节，
+     * 200000次装箱会超过3MB，这里只允许计数本身和JIT带来的少量分配
+     */
+    @Test
+    public void setValueDoesNotAllocatePerEvent() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        IntChannel channel = new IntChannel();
+        final long[] sum = new long[1];
+        for (int i = 0; i < 3; i++) {
+            channel.observeForever(new IntChannel.Observer() {
+                @Override
+                public void onChanged(int value) {
+                    sum[0] += value;
+                }
+            });
+        }
+        //预热，让分发路径先完成类加载和编译
+        for (int i = 0; i < 200000; i++) {
+            channel.setValue(1000 + i);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 200000; i++) {
+            channel.setValue(1000 + i);
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+        assertTrue(sum[0] > 0);
+    }
+
+    /**
+     * 每个事件的分配量和耗时：MutableLiveData<Integer>、MutableLiveData<Float>对比IntChannel、FloatChannel，
+     * 各3个观察者，-Pbenchmark时运行
+     */
+    @Test
+    public void benchmarkBoxedAgainstPrimitive() throws Exception {
+        Benchmark.assumeEnabled();
+        final int events = 200000;
+        final long[] sum = new long[1];
+        final MutableLiveData<Integer> boxedInt = new MutableLiveData<>();
+        final MutableLiveData<Float> boxedFloat = new MutableLiveData<>();
+        final IntChannel intChannel = new IntChannel();
+        final FloatChannel floatChannel = new FloatChannel();
+        for (int i = 0; i < 3; i++) {
+            boxedInt.observeForever(new androidx.lifecycle.Observer<Integer>() {
+                @Override
+                public void onChanged(Integer value) {
+                    sum[0] += value;
+                }
+            });
+            boxedFloat.observeForever(new androidx.lifecycle.Observer<Float>() {
+                @Override
+                public void onChanged(Float value) {
+                    sum[0] += (long) (float) value;
+                }
+            });
+            intChannel.observeForever(new IntChannel.Observer() {
+                @Override
+                public void onChanged(int value) {
+                    sum[0] += value;
+                }
+            });
+            floatChannel.observeForever(new FloatChannel.Observer() {
+                @Override
+                public void onChanged(float value) {
+                    sum[0] += (long) value;
+                }
+            });
+        }
+        report("MutableLiveData<Integer>", events, new Benchmark.Task() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    boxedInt.setValue(1000 + i);
+                }
+            }
+        });
+        report("IntChannel", events, new Benchmark.Task() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    intChannel.setValue(1000 + i);
+                }
+            }
+        });
+        report("MutableLiveData<Float>", events, new Benchmark.Task() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    boxedFloat.setValue(i / 100f);
+                }
+            }
+        });
+        report("FloatChannel", events, new Benchmark.Task() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    floatChannel.setValue(i / 100f);
+                }
+            }
+        });
+        assertTrue(sum[0] > 0);
+    }
+
+    private static void report(String name, int events, Benchmark.Task task) throws Exception {
+        long nanos = Benchmark.medianNanos(3, 11, task);
+        long allocated = Benchmark.allocatedBytes(task);
+        Benchmark.report(name, "%.1f ns/event, %.2f bytes/event", nanos / (double) events,
+                allocated / (double) events);
+    }
+}
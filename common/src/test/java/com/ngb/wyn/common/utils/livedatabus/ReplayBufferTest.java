@@ -0,0 +1,107 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ReplayBufferTest {
+
+    @Before
+    public void setUp() {
+        TestMainThread.install();
+    }
+
+    @After
+    public void tearDown() {
+        TestMainThread.uninstall();
+    }
+
+    @Test
+    public void snapshotKeepsLastValuesOldestFirst() {
+        ReplayBuffer buffer = new ReplayBuffer(3, 0);
+        assertEquals(0, buffer.snapshot().length);
+        buffer.add("a");
+        buffer.add("b");
+        assertArrayEquals(new Object[]{"a", "b"}, buffer.snapshot());
+        //超过容量后覆盖最旧的值，多绕几圈检查环形下标
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i);
+        }
+        assertArrayEquals(new Object[]{7, 8, 9}, buffer.snapshot());
+    }
+
+    @Test
+    public void snapshotIsACopy() {
+        ReplayBuffer buffer = new ReplayBuffer(2, 0);
+        buffer.add("a");
+        Object[] snapshot = buffer.snapshot();
+        buffer.add("b");
+        buffer.add("c");
+        assertArrayEquals(new Object[]{"a"}, snapshot);
+    }
+
+    @Test
+    public void clearForgetsValuesAndKeepsRecording() {
+        ReplayBuffer buffer = new ReplayBuffer(2, 0);
+        buffer.add("a");
+        buffer.add("b");
+        buffer.add(null);
+        buffer.clear();
+        assertEquals(0, buffer.snapshot().length);
+        buffer.add("c");
+        assertArrayEquals(new Object[]{"c"}, buffer.snapshot());
+    }
+
+    /**
+     * 单元测试里SystemClock.elapsedRealtime()恒为0，时间不会前进，这里只能确认设置TTL后未过期的值照常保留
+     */
+    @Test
+    public void ttlKeepsValuesThatHaveNotExpired() {
+        ReplayBuffer buffer = new ReplayBuffer(2, 1000);
+        buffer.add("a");
+        buffer.add("b");
+        buffer.add("c");
+        assertArrayEquals(new Object[]{"b", "c"}, buffer.snapshot());
+    }
+
+    @Test
+    public void observeForeverReplayReceivesHistoryThenLiveValues() {
+        MutableLiveData<String> liveData = new MutableLiveData<>();
+        liveData.setReplay(3, 0);
+        for (String value : new String[]{"a", "b", "c", "d"}) {
+            liveData.setValue(value);
+        }
+        LiveDataTest.Recorder recorder = new LiveDataTest.Recorder();
+        liveData.observeForeverReplay(recorder);
+        //最新值已在历史中，不会重复分发
+        assertEquals(Arrays.asList("b", "c", "d"), recorder.mValues);
+        liveData.setValue("e");
+        assertEquals(Arrays.asList("b", "c", "d", "e"), recorder.mValues);
+    }
+
+    @Test
+    public void clearReplayAndDisabledReplayDeliverNoHistory() {
+        MutableLiveData<String> liveData = new MutableLiveData<>();
+        liveData.setReplay(2, 0);
+        liveData.setValue("a");
+        liveData.clearReplay();
+        LiveDataTest.Recorder cleared = new LiveDataTest.Recorder();
+        liveData.observeForeverReplay(cleared);
+        assertEquals(0, cleared.mValues.size());
+
+        liveData.setValue("b");
+        liveData.setReplay(0, 0);
+        liveData.setValue("c");
+        LiveDataTest.Recorder disabled = new LiveDataTest.Recorder();
+        liveData.observeForeverReplay(disabled);
+        assertEquals(0, disabled.mValues.size());
+        liveData.setValue("d");
+        assertEquals(Arrays.asList("b", "c", "d"), cleared.mValues);
+        assertEquals(Arrays.asList("d"), disabled.mValues);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.lifecycle.GenericLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lifecycle moved by the test with {@link #setState(Lifecycle.State)}, observers are notified
+ * synchronously on the calling thread.
+ */
+final class TestLifecycleOwner implements LifecycleOwner {
+    private final List<LifecycleObserver> mObservers = new ArrayList<>();
+    private Lifecycle.State mState = Lifecycle.State.CREATED;
+
+    private final Lifecycle mLifecycle = new Lifecycle() {
+        @Override
+        public void addObserver(LifecycleObserver observer) {
+            mObservers.add(observer);
+            notifyObserver(observer);
+        }
+
+        @Override
+        public void removeObserver(LifecycleObserver observer) {
+            mObservers.remove(observer);
+        }
+
+        @Override
+        public State getCurrentState() {
+            return mState;
+        }
+    };
+
+    @Override
+    public Lifecycle getLifecycle() {
+        return mLifecycle;
+    }
+
+    void setState(Lifecycle.State state) {
+        mState = state;
+        for (LifecycleObserver observer : new ArrayList<>(mObservers)) {
+            notifyObserver(observer);
+        }
+    }
+
+    private void notifyObserver(LifecycleObserver observer) {
+        if (observer instanceof GenericLifecycleObserver) {
+            ((GenericLifecycleObserver) observer).onStateChanged(this, Lifecycle.Event.ON_ANY);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.ngb.wyn.common.utils.livedatabus;
+
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Treats the thread that installs it as the main thread. Runnables posted to the main thread are
+ * queued until {@link #drain()}, so tests decide when the main looper "runs".
+ */
+final class TestMainThread extends TaskExecutor {
+    private final Thread mThread = Thread.currentThread();
+    private final ConcurrentLinkedQueue<Runnable> mQueue = new ConcurrentLinkedQueue<>();
+
+    static TestMainThread install() {
+        TestMainThread mainThread = new TestMainThread();
+        ArchTaskExecutor.getInstance().setDelegate(mainThread);
+        return mainThread;
+    }
+
+    static void uninstall() {
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Override
+    public void executeOnDiskIO(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Override
+    public void postToMainThread(Runnable runnable) {
+        mQueue.offer(runnable);
+    }
+
+    @Override
+    public boolean isMainThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    int pending() {
+        return mQueue.size();
+    }
+
+    /**
+     * @return how many runnables were run, including ones posted while draining
+     */
+    int drain() {
+        int count = 0;
+        Runnable runnable;
+        while ((runnable = mQueue.poll()) != null) {
+            runnable.run();
+            count++;
+        }
+        return count;
+    }
+}